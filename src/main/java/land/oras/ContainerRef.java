@@ -47,6 +47,12 @@ public final class ContainerRef extends Ref {
                     + "(?:@(.+))?" // digest
                     + "$");
 
+    /**
+     * The regex pattern to parse the registry and repository name of a registry API URL.
+     */
+    private static final Pattern API_URL_PATTERN =
+            Pattern.compile("([^/]+)/v2/(.+?)/(?:blobs|manifests|tags|referrers)/.*");
+
     /**
      * The registry where the container is stored.
      */
@@ -124,6 +130,17 @@ public final class ContainerRef extends Ref {
         return repository;
     }
 
+    /**
+     * Get the repository including the namespace as used in the API path
+     * @return The full repository
+     */
+    public String getFullRepository() {
+        if (namespace != null) {
+            return "%s/%s".formatted(getNamespace(), repository);
+        }
+        return repository;
+    }
+
     /**
      * Get the digest
      * @return The digest
@@ -137,6 +154,14 @@ public final class ContainerRef extends Ref {
         return new ContainerRef(registry, getNamespace(), repository, tag, digest);
     }
 
+    /**
+     * Return a copy of the container reference without digest
+     * @return The container reference
+     */
+    public ContainerRef withoutDigest() {
+        return new ContainerRef(registry, getNamespace(), repository, tag, null);
+    }
+
     @Override
     public SupportedAlgorithm getAlgorithm() {
         // Default if not set
@@ -152,10 +177,7 @@ public final class ContainerRef extends Ref {
      * @return The API prefix
      */
     private String getApiPrefix() {
-        if (namespace != null) {
-            return "%s/v2/%s/%s".formatted(getApiRegistry(), getNamespace(), repository);
-        }
-        return "%s/v2/%s".formatted(getApiRegistry(), repository);
+        return "%s/v2/%s".formatted(getApiRegistry(), getFullRepository());
     }
 
     /**
@@ -195,6 +217,18 @@ public final class ContainerRef extends Ref {
         return "%s/blobs/uploads/".formatted(getApiPrefix());
     }
 
+    /**
+     * Return the blobs upload URL to mount the blob of this container from another repository of the same registry
+     * @param source The source container
+     * @return The blobs upload URL
+     */
+    public String getBlobsUploadMountPath(ContainerRef source) {
+        if (digest == null) {
+            throw new OrasException("You are required to include a digest");
+        }
+        return "%s?mount=%s&from=%s".formatted(getBlobsUploadPath(), digest, source.getFullRepository());
+    }
+
     /**
      * Return the blobs upload URL with the digest for single POST upload
      * @return The blobs upload URL
@@ -275,7 +309,18 @@ public final class ContainerRef extends Ref {
      * @return The container reference
      */
     public static ContainerRef fromUrl(String url) {
-        String registry = url.replaceAll("^(http://|https://)", "");
+        String registry = url.startsWith("https://")
+                ? url.substring("https://".length())
+                : url.startsWith("http://") ? url.substring("http://".length()) : url;
+
+        // Keep the repository of registry API URLs so that a token with the matching scope can be used
+        Matcher matcher = API_URL_PATTERN.matcher(registry);
+        if (matcher.matches()) {
+            String name = matcher.group(2);
+            int index = name.lastIndexOf('/');
+            String namespace = index > 0 ? name.substring(0, index) : null;
+            return new ContainerRef(matcher.group(1), namespace, name.substring(index + 1), "latest", null);
+        }
         if (registry.contains("/")) {
             registry = registry.substring(0, registry.indexOf("/"));
         }
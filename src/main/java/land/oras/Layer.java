@@ -172,9 +172,19 @@ public final class Layer extends Descriptor {
      * @return The layer
      */
     public static Layer fromData(ContainerRef containerRef, byte[] data) {
+        return fromData(containerRef.getAlgorithm().digest(data), data);
+    }
+
+    /**
+     * Create a layer from data already digested
+     * @param digest The digest of the data
+     * @param data The data
+     * @return The layer
+     */
+    static Layer fromData(String digest, byte[] data) {
         return new Layer(
                 Const.DEFAULT_BLOB_MEDIA_TYPE,
-                containerRef.getAlgorithm().digest(data),
+                digest,
                 data.length,
                 Base64.getEncoder().encodeToString(data),
                 Map.of());
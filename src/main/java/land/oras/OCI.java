@@ -24,10 +24,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import land.oras.exception.OrasException;
 import land.oras.utils.ArchiveUtils;
 import land.oras.utils.Const;
@@ -47,11 +56,56 @@ public abstract sealed class OCI<T extends Ref> permits Registry, OCILayout {
      */
     protected static final Logger LOG = LoggerFactory.getLogger(OCI.class);
 
+    /**
+     * The maximum number of concurrent transfers. 1 means sequential
+     */
+    private transient int parallelism = 1;
+
+    /**
+     * The executor of concurrent transfers. A new thread pool is used for each operation if not set
+     */
+    private transient @Nullable Executor executor;
+
     /**
      * Default constructor
      */
     protected OCI() {}
 
+    /**
+     * Set the maximum number of concurrent transfers
+     * @param parallelism The parallelism
+     */
+    protected void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new OrasException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set the executor of concurrent transfers
+     * @param executor The executor
+     */
+    protected void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Get the executor of concurrent transfers
+     * @return The executor or null if a new thread pool is used for each operation
+     */
+    public @Nullable Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the maximum number of concurrent transfers
+     * @return The parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
     /**
      * Push an artifact
      * @param ref The ref
@@ -96,35 +150,49 @@ public abstract sealed class OCI<T extends Ref> permits Registry, OCILayout {
     }
 
     /**
-     * Push a blob from file
+     * Push a blob from an input stream. The stream is read only once and digested while it is pushed.
+     * If the ref has a digest, the content must match it
      * @param ref The ref
      * @param input The input stream
      * @return The layer
      */
-    public Layer pushBlob(T ref, InputStream input) {
-        try {
-            Path tempFile = Files.createTempFile("oras", "layer");
-            Files.copy(input, tempFile, StandardCopyOption.REPLACE_EXISTING);
-            return pushBlob(ref, tempFile);
-        } catch (IOException e) {
-            throw new OrasException("Failed to push blob", e);
+    public abstract Layer pushBlob(T ref, InputStream input);
+
+    /**
+     * Push the layers. Layers are pushed concurrently up to the parallelism, but returned in the order of the paths
+     * Each file is read and digested once while it's pushed
+     * @param ref The ref
+     * @param paths The paths
+     * @return The layers
+     */
+    protected List<Layer> pushLayers(T ref, LocalPath... paths) {
+        List<Callable<Layer>> tasks = new ArrayList<>();
+        for (LocalPath path : paths) {
+            tasks.add(() -> pushLayer(ref, path));
         }
+        return executeAll(tasks);
     }
 
-    @SuppressWarnings("unchecked")
-    protected List<Layer> pushLayers(T ref, boolean withDigest, LocalPath... paths) {
-        List<Layer> layers = new ArrayList<>();
-        for (LocalPath path : paths) {
-            try {
-                // Create tar.gz archive for directory
-                if (Files.isDirectory(path.getPath())) {
-                    LocalPath tempTar = ArchiveUtils.tar(path);
-                    LocalPath tempArchive = ArchiveUtils.compress(tempTar, path.getMediaType());
-                    if (withDigest) {
-                        ref = (T) ref.withDigest(ref.getAlgorithm().digest(tempArchive.getPath()));
-                    }
+    /**
+     * Push the content of a layer whose digest is not known yet. The content is digested while it's pushed
+     * @param ref The ref
+     * @param input The input stream
+     * @return The layer
+     */
+    protected Layer pushLayerBlob(T ref, InputStream input) {
+        return pushBlob(ref, input);
+    }
+
+    private Layer pushLayer(T ref, LocalPath path) {
+        try {
+            // Create tar.gz archive for directory
+            if (Files.isDirectory(path.getPath())) {
+                LocalPath tempTar = ArchiveUtils.tar(path);
+                LocalPath tempArchive = null;
+                try {
+                    tempArchive = ArchiveUtils.compress(tempTar, path.getMediaType());
                     try (InputStream is = Files.newInputStream(tempArchive.getPath())) {
-                        Layer layer = pushBlob(ref, is)
+                        Layer layer = pushLayerBlob(ref, is)
                                 .withMediaType(path.getMediaType())
                                 .withAnnotations(Map.of(
                                         Const.ANNOTATION_TITLE,
@@ -133,29 +201,102 @@ public abstract sealed class OCI<T extends Ref> permits Registry, OCILayout {
                                         ref.getAlgorithm().digest(tempTar.getPath()),
                                         Const.ANNOTATION_ORAS_UNPACK,
                                         "true"));
-                        layers.add(layer);
                         LOG.info("Uploaded directory: {}", layer.getDigest());
+                        return layer;
                     }
-                    Files.delete(tempArchive.getPath());
-                } else {
-                    try (InputStream is = Files.newInputStream(path.getPath())) {
-                        if (withDigest) {
-                            ref = (T) ref.withDigest(ref.getAlgorithm().digest(path.getPath()));
-                        }
-                        Layer layer = pushBlob(ref, is)
-                                .withMediaType(path.getMediaType())
-                                .withAnnotations(Map.of(
-                                        Const.ANNOTATION_TITLE,
-                                        path.getPath().getFileName().toString()));
-                        layers.add(layer);
-                        LOG.info("Uploaded: {}", layer.getDigest());
+                } finally {
+                    // The archive is the tar itself when not compressed
+                    Files.deleteIfExists(tempTar.getPath());
+                    if (tempArchive != null) {
+                        Files.deleteIfExists(tempArchive.getPath());
                     }
                 }
-            } catch (IOException e) {
-                throw new OrasException("Failed to push artifact", e);
             }
+            try (InputStream is = Files.newInputStream(path.getPath())) {
+                Layer layer = pushLayerBlob(ref, is)
+                        .withMediaType(path.getMediaType())
+                        .withAnnotations(Map.of(
+                                Const.ANNOTATION_TITLE,
+                                path.getPath().getFileName().toString()));
+                LOG.info("Uploaded: {}", layer.getDigest());
+                return layer;
+            }
+        } catch (IOException e) {
+            throw new OrasException("Failed to push artifact", e);
+        }
+    }
+
+    /**
+     * Execute the tasks with at most parallelism tasks running at the same time.
+     * The results are returned in the order of the tasks. The first failure cancel all remaining tasks.
+     * @param tasks The tasks
+     * @param <R> The result type
+     * @return The results
+     */
+    protected <R> List<R> executeAll(List<Callable<R>> tasks) {
+        return executeAll(tasks, parallelism);
+    }
+
+    /**
+     * Execute the tasks with at most the given number of tasks running at the same time.
+     * The results are returned in the order of the tasks. The first failure cancel all remaining tasks.
+     * @param tasks The tasks
+     * @param parallelism The maximum number of concurrent tasks
+     * @param <R> The result type
+     * @return The results
+     */
+    protected <R> List<R> executeAll(List<Callable<R>> tasks, int parallelism) {
+        if (parallelism == 1 || tasks.size() <= 1) {
+            List<R> results = new ArrayList<>(tasks.size());
+            for (Callable<R> task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+        int concurrency = Math.min(parallelism, tasks.size());
+        ExecutorService pool = executor == null ? Executors.newFixedThreadPool(concurrency) : null;
+        CompletionService<R> completionService = new ExecutorCompletionService<>(pool != null ? pool : executor);
+        Map<Future<R>, Integer> positions = new HashMap<>();
+        try {
+            // Submit the next task when one completes so that a shared executor never runs more than parallelism
+            for (int i = 0; i < concurrency; i++) {
+                positions.put(completionService.submit(tasks.get(i)), i);
+            }
+            List<R> results = new ArrayList<>(Collections.nCopies(tasks.size(), null));
+            for (int i = 0; i < tasks.size(); i++) {
+                Future<R> future = completionService.take();
+                results.set(positions.get(future), future.get());
+                int next = concurrency + i;
+                if (next < tasks.size()) {
+                    positions.put(completionService.submit(tasks.get(next)), next);
+                }
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OrasException oe) {
+                throw oe;
+            }
+            throw new OrasException("Failed to execute task", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrasException("Interrupted while waiting for tasks", e);
+        } finally {
+            // Cancel remaining tasks on failure
+            positions.keySet().forEach(future -> future.cancel(true));
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static <R> R call(Callable<R> task) {
+        try {
+            return task.call();
+        } catch (OrasException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OrasException("Failed to execute task", e);
         }
-        return layers;
     }
 
     /**
@@ -223,8 +364,9 @@ public abstract sealed class OCI<T extends Ref> permits Registry, OCILayout {
      * Fetch blob and save it to file
      * @param ref The ref
      * @param path The path to save the blob
+     * @return The descriptor of the fetched blob
      */
-    public abstract void fetchBlob(T ref, Path path);
+    public abstract Descriptor fetchBlob(T ref, Path path);
 
     /**
      * Fetch blob and return it as input stream
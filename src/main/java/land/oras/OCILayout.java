@@ -20,15 +20,20 @@
 
 package land.oras;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import land.oras.exception.OrasException;
 import land.oras.utils.Const;
+import land.oras.utils.DigestingInputStream;
+import land.oras.utils.DigestingOutputStream;
 import land.oras.utils.JsonUtils;
 import land.oras.utils.SupportedAlgorithm;
 import org.jspecify.annotations.Nullable;
@@ -71,7 +76,7 @@ public final class OCILayout extends OCI<LayoutRef> {
         }
 
         // Push layers
-        List<Layer> layers = pushLayers(ref, true, paths);
+        List<Layer> layers = pushLayers(ref, paths);
 
         // Push the config like any other blob
         Config configToPush = config != null ? config : Config.empty();
@@ -185,11 +190,20 @@ public final class OCILayout extends OCI<LayoutRef> {
     }
 
     @Override
-    public void fetchBlob(LayoutRef ref, Path path) {
-        InputStream is = fetchBlob(ref);
-        try {
-            Files.copy(is, path);
+    public Descriptor fetchBlob(LayoutRef ref, Path path) {
+        String tag = ref.getTag();
+        // Blobs are verified while they are copied, manifests by tag are copied as is
+        try (InputStream is = tag != null && SupportedAlgorithm.isSupported(tag)
+                ? new DigestingInputStream(fetchBlob(ref), tag)
+                : fetchBlob(ref)) {
+            try {
+                Files.copy(is, path);
+            } catch (OrasException e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
             LOG.info("Downloaded: {}", ref.getTag());
+            return fetchBlobDescriptor(ref);
         } catch (IOException e) {
             throw new OrasException("Failed to fetch blob", e);
         }
@@ -221,34 +235,79 @@ public final class OCILayout extends OCI<LayoutRef> {
 
     @Override
     public Layer pushBlob(LayoutRef ref, Path blob, Map<String, String> annotations) {
-        ensureDigest(ref, blob);
-        Path blobPath = getBlobPath(ref);
-        String digest = ref.getAlgorithm().digest(blob);
-        ensureAlgorithmPath(digest);
-        LOG.debug("Digest: {}", digest);
-        try {
-            if (Files.exists(blobPath)) {
-                LOG.info("Blob already exists: {}", digest);
-                return Layer.fromFile(blobPath, ref.getAlgorithm()).withAnnotations(annotations);
-            }
-            Files.copy(blob, blobPath);
-            return Layer.fromFile(blobPath, ref.getAlgorithm()).withAnnotations(annotations);
+        String digest = ensureDigest(ref);
+        try (InputStream is = Files.newInputStream(blob)) {
+            return writeBlob(SupportedAlgorithm.fromDigest(digest), digest, is).withAnnotations(annotations);
         } catch (IOException e) {
             throw new OrasException("Failed to push blob", e);
         }
     }
 
+    @Override
+    public Layer pushBlob(LayoutRef ref, InputStream input) {
+        String digest = ensureDigest(ref);
+        return writeBlob(SupportedAlgorithm.fromDigest(digest), digest, input);
+    }
+
     @Override
     public Layer pushBlob(LayoutRef ref, byte[] data) {
+        String digest = ensureDigest(ref);
+        return writeBlob(SupportedAlgorithm.fromDigest(digest), digest, new ByteArrayInputStream(data));
+    }
+
+    @Override
+    protected Layer pushLayerBlob(LayoutRef ref, InputStream input) {
+        return writeBlob(ref.getAlgorithm(), null, input);
+    }
+
+    /**
+     * Write a blob next to its final path while digesting it, then move it in place.
+     * The content is read and digested once
+     * @param algorithm The algorithm
+     * @param expectedDigest The digest the content must match or null if not known yet
+     * @param input The input stream
+     * @return The layer
+     */
+    private Layer writeBlob(SupportedAlgorithm algorithm, @Nullable String expectedDigest, InputStream input) {
+        Path algorithmPath = getBlobPath().resolve(algorithm.getPrefix());
         try {
-            Path path = Files.createTempFile("oras", "blob");
-            Files.write(path, data);
-            ensureDigest(ref, path);
-            String digest = ref.getAlgorithm().digest(data);
-            ensureAlgorithmPath(digest);
-            return pushBlob(ref, path, Map.of());
+            if (expectedDigest != null) {
+                Path blobPath = algorithmPath.resolve(SupportedAlgorithm.getDigest(expectedDigest));
+                if (Files.exists(blobPath)) {
+                    LOG.info("Blob already exists: {}", expectedDigest);
+                    return Layer.fromDigest(expectedDigest, Files.size(blobPath))
+                            .withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE);
+                }
+            }
+            Files.createDirectories(algorithmPath);
+            Path tempFile = Files.createTempFile(algorithmPath, ".oras-", ".part");
+            String digest = expectedDigest;
+            try {
+                DigestingOutputStream os = new DigestingOutputStream(Files.newOutputStream(tempFile), algorithm);
+                try (os) {
+                    input.transferTo(os);
+                }
+                digest = os.getDigest();
+                LOG.debug("Digest: {}", digest);
+                if (expectedDigest != null) {
+                    os.verify(expectedDigest);
+                }
+                Path blobPath = algorithmPath.resolve(SupportedAlgorithm.getDigest(digest));
+                if (Files.exists(blobPath)) {
+                    LOG.info("Blob already exists: {}", digest);
+                } else {
+                    Files.move(tempFile, blobPath);
+                }
+                return Layer.fromDigest(digest, os.getSize()).withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE);
+            } catch (FileAlreadyExistsException e) {
+                LOG.info("Blob already pushed concurrently: {}", digest);
+                return Layer.fromDigest(digest, Files.size(algorithmPath.resolve(SupportedAlgorithm.getDigest(digest))))
+                        .withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
         } catch (IOException e) {
-            throw new OrasException("Failed to push blob to OCI layout", e);
+            throw new OrasException("Failed to push blob", e);
         }
     }
 
@@ -304,17 +363,6 @@ public final class OCILayout extends OCI<LayoutRef> {
         }
     }
 
-    private void ensureAlgorithmPath(String digest) {
-        Path prefixDirectory = getBlobAlgorithmPath(digest);
-        try {
-            if (!Files.exists(prefixDirectory)) {
-                Files.createDirectory(prefixDirectory);
-            }
-        } catch (IOException e) {
-            throw new OrasException("Failed to create algorithm path", e);
-        }
-    }
-
     /**
      * Copy the container ref from registry into oci-layout
      * @param registry The registry
@@ -325,29 +373,20 @@ public final class OCILayout extends OCI<LayoutRef> {
 
         try {
 
-            Map<String, String> headers = registry.getHeaders(containerRef);
-            String contentType = headers.get(Const.CONTENT_TYPE_HEADER.toLowerCase());
-            if (contentType == null) {
-                throw new OrasException("Content type not found in headers");
-            }
-            String manifestDigest = headers.get(Const.DOCKER_CONTENT_DIGEST_HEADER.toLowerCase());
-            if (manifestDigest == null) {
-                throw new OrasException("Manifest digest not found in headers");
-            }
-
-            LOG.debug("Content type: {}", contentType);
-            LOG.debug("Manifest digest: {}", manifestDigest);
+            Descriptor resolved = registry.resolve(containerRef, true);
+            List<Layer> layers = new ArrayList<>();
 
             // Single manifest
-            if (registry.isManifestMediaType(contentType)) {
+            if (resolved instanceof Manifest manifest) {
 
                 // Write manifest as any blob
-                Manifest manifest = registry.getManifest(containerRef);
                 writeManifest(manifest);
+                layers.addAll(manifest.getLayers());
 
                 if (recursive) {
                     LOG.debug("Recursively copy referrers");
-                    Referrers referrers = registry.getReferrers(containerRef.withDigest(manifestDigest), null);
+                    Referrers referrers = registry.getReferrers(
+                            containerRef.withDigest(manifest.getDescriptor().getDigest()), null);
                     for (ManifestDescriptor referer : referrers.getManifests()) {
                         LOG.info("Copy reference {}", referer.getDigest());
                         copy(registry, containerRef.withDigest(referer.getDigest()), recursive);
@@ -362,38 +401,35 @@ public final class OCILayout extends OCI<LayoutRef> {
                 writeConfig(registry, containerRef, manifest.getConfig());
             }
             // Index
-            else if (registry.isIndexMediaType(contentType)) {
+            else {
 
-                Index index = registry.getIndex(containerRef);
+                Index index = (Index) resolved;
 
                 // Write all manifests and their config
                 for (ManifestDescriptor descriptor : index.getManifests()) {
                     Manifest manifest = registry.getManifest(containerRef.withDigest(descriptor.getDigest()));
                     writeManifest(manifest.withDescriptor(descriptor));
                     writeConfig(registry, containerRef, manifest.getConfig());
+                    layers.addAll(manifest.getLayers());
                 }
 
                 // Write the index
                 writeIndex(index);
-
-            } else {
-                throw new OrasException("Unsupported content type: %s".formatted(contentType));
             }
 
             // Write all layer
-            for (Layer layer : registry.collectLayers(containerRef, contentType, true)) {
-                try (InputStream is = registry.fetchBlob(containerRef.withDigest(layer.getDigest()))) {
-
-                    ensureAlgorithmPath(layer.getDigest());
+            for (Layer layer : layers) {
+                Path blobFile = getBlobPath(layer);
 
-                    Path blobFile = getBlobPath(layer);
+                // Skip if already exists
+                if (Files.exists(blobFile)) {
+                    LOG.debug("Blob already exists: {}", blobFile);
+                    continue;
+                }
 
-                    // Skip if already exists
-                    if (Files.exists(blobFile)) {
-                        LOG.debug("Blob already exists: {}", blobFile);
-                        continue;
-                    }
-                    Files.copy(is, blobFile);
+                // The registry stream is verified at its end, before the blob is moved in place
+                try (InputStream is = registry.fetchBlob(containerRef.withDigest(layer.getDigest()))) {
+                    writeBlob(SupportedAlgorithm.fromDigest(layer.getDigest()), null, is);
                     LOG.debug("Copied blob to {}", blobFile);
                 }
             }
@@ -536,18 +572,19 @@ public final class OCILayout extends OCI<LayoutRef> {
         }
     }
 
-    private void ensureDigest(LayoutRef ref, Path path) {
+    /**
+     * Ensure the ref is a supported digest. The content is checked against it while it's written
+     * @param ref The ref
+     * @return The digest
+     */
+    private String ensureDigest(LayoutRef ref) {
         if (ref.getTag() == null) {
             throw new OrasException("Missing ref");
         }
         if (!SupportedAlgorithm.matchPattern(ref.getTag())) {
             throw new OrasException("Unsupported digest: %s".formatted(ref.getTag()));
         }
-        SupportedAlgorithm algorithm = SupportedAlgorithm.fromDigest(ref.getTag());
-        String pathDigest = algorithm.digest(path);
-        if (!ref.getTag().equals(pathDigest)) {
-            throw new OrasException("Digest mismatch: %s != %s".formatted(ref.getTag(), pathDigest));
-        }
+        return ref.getTag();
     }
 
     /**
@@ -585,6 +622,16 @@ public final class OCILayout extends OCI<LayoutRef> {
             return this;
         }
 
+        /**
+         * Set the maximum number of layers pushed concurrently
+         * @param parallelism The parallelism. 1 means sequential
+         * @return The builder
+         */
+        public OCILayout.Builder withParallelism(int parallelism) {
+            layout.setParallelism(parallelism);
+            return this;
+        }
+
         /**
          * Return a new builder
          * @return The builder
@@ -20,17 +20,37 @@
 
 package land.oras;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import land.oras.auth.AuthProvider;
 import land.oras.auth.AuthStoreAuthenticationProvider;
 import land.oras.auth.BearerTokenProvider;
@@ -38,15 +58,21 @@ import land.oras.auth.NoAuthProvider;
 import land.oras.auth.UsernamePasswordProvider;
 import land.oras.exception.OrasException;
 import land.oras.utils.ArchiveUtils;
+import land.oras.utils.CircuitBreaker;
 import land.oras.utils.Const;
+import land.oras.utils.DigestingInputStream;
 import land.oras.utils.JsonUtils;
 import land.oras.utils.OrasHttpClient;
+import land.oras.utils.RateLimiter;
+import land.oras.utils.RetryPolicy;
 import land.oras.utils.SupportedAlgorithm;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 /**
- * A registry is the main entry point for interacting with a container registry
+ * A registry is the main entry point for interacting with a container registry.
+ * A registry is safe for concurrent use and should be shared to reuse connections and tokens.
+ * Its configuration can't change once built, only the authentication switches to the token flow when challenged
  */
 @NullMarked
 public final class Registry extends OCI<ContainerRef> {
@@ -59,7 +85,7 @@ public final class Registry extends OCI<ContainerRef> {
     /**
      * The auth provider
      */
-    private AuthProvider authProvider;
+    private volatile AuthProvider authProvider;
 
     /**
      * Insecure. Use HTTP instead of HTTPS
@@ -71,6 +97,66 @@ public final class Registry extends OCI<ContainerRef> {
      */
     private boolean skipTlsVerify;
 
+    /**
+     * Connect timeout in seconds, the HTTP client default if null
+     */
+    private @Nullable Integer connectTimeout;
+
+    /**
+     * Timeout in seconds to receive the response of a request, no timeout if null
+     */
+    private @Nullable Integer requestTimeout;
+
+    /**
+     * Preferred HTTP version, HTTP/2 with fallback to HTTP/1.1 if null
+     */
+    private HttpClient.@Nullable Version httpVersion;
+
+    /**
+     * Retry policy of idempotent requests and blob uploads
+     */
+    private RetryPolicy retryPolicy = RetryPolicy.defaults();
+
+    /**
+     * Rate limiter of requests per registry host
+     */
+    private RateLimiter rateLimiter = RateLimiter.defaults();
+
+    /**
+     * Circuit breaker of requests per registry host
+     */
+    private CircuitBreaker circuitBreaker = CircuitBreaker.defaults();
+
+    /**
+     * Size of the chunks for chunked blob upload, 0 if disabled. Blobs larger than a chunk are uploaded in chunks
+     */
+    private int chunkSize;
+
+    /**
+     * Number of concurrent range requests used to download a large blob. 1 disables segmented download
+     */
+    private int downloadSegments = 1;
+
+    /**
+     * Default executor of the asynchronous operations made of several requests.
+     * Daemon threads so that pending operations don't prevent the JVM from exiting
+     */
+    private static final Executor ASYNC_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "oras-async");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Maximum number of times a chunk upload is resumed after a failure
+     */
+    private static final int MAX_CHUNK_RESUME = 3;
+
+    /**
+     * Maximum number of times a blob download is resumed after a failure
+     */
+    private static final int MAX_DOWNLOAD_RESUME = 3;
+
     /**
      * Constructor
      */
@@ -95,25 +181,146 @@ public final class Registry extends OCI<ContainerRef> {
         this.skipTlsVerify = skipTlsVerify;
     }
 
+    /**
+     * Return this registry with the connect timeout
+     * @param connectTimeout The timeout in seconds
+     */
+    private void setConnectTimeout(@Nullable Integer connectTimeout) {
+        if (connectTimeout != null && connectTimeout < 1) {
+            throw new OrasException("Connect timeout must be at least 1 second");
+        }
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Return this registry with the request timeout
+     * @param requestTimeout The timeout in seconds
+     */
+    private void setRequestTimeout(@Nullable Integer requestTimeout) {
+        if (requestTimeout != null && requestTimeout < 1) {
+            throw new OrasException("Request timeout must be at least 1 second");
+        }
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Return this registry with the preferred HTTP version
+     * @param httpVersion The HTTP version
+     */
+    private void setHttpVersion(HttpClient.@Nullable Version httpVersion) {
+        this.httpVersion = httpVersion;
+    }
+
+    /**
+     * Return this registry with the retry policy
+     * @param retryPolicy The retry policy
+     */
+    private void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Return this registry with the rate limiter
+     * @param rateLimiter The rate limiter
+     */
+    private void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Return this registry with the circuit breaker
+     * @param circuitBreaker The circuit breaker
+     */
+    private void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Return this registry with the chunk size
+     * @param chunkSize The chunk size in bytes
+     */
+    private void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new OrasException("Chunk size must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Return this registry with the number of download segments
+     * @param downloadSegments The number of segments
+     */
+    private void setDownloadSegments(int downloadSegments) {
+        if (downloadSegments < 1) {
+            throw new OrasException("Download segments must be at least 1");
+        }
+        this.downloadSegments = downloadSegments;
+    }
+
     /**
      * Return this registry with auth provider
      * @param authProvider The auth provider
      */
-    private void setAuthProvider(AuthProvider authProvider) {
+    private synchronized void setAuthProvider(AuthProvider authProvider) {
         this.authProvider = authProvider;
         client.updateAuthentication(authProvider);
     }
 
     /**
-     * Build the provider
-     * @return The provider
+     * Build a new registry from this configuration so that reusing the builder can't change it
+     * @return The registry
      */
     private Registry build() {
-        client = OrasHttpClient.Builder.builder()
+        Registry registry = new Registry();
+        registry.setParallelism(getParallelism());
+        registry.setInsecure(insecure);
+        registry.setSkipTlsVerify(skipTlsVerify);
+        registry.chunkSize = chunkSize;
+        registry.setDownloadSegments(downloadSegments);
+        registry.setExecutor(getExecutor());
+        registry.setConnectTimeout(connectTimeout);
+        registry.setRequestTimeout(requestTimeout);
+        registry.setHttpVersion(httpVersion);
+        registry.setRetryPolicy(retryPolicy);
+        registry.setRateLimiter(rateLimiter);
+        registry.setCircuitBreaker(circuitBreaker);
+        registry.client = OrasHttpClient.Builder.builder()
                 .withAuthentication(authProvider)
                 .withSkipTlsVerify(skipTlsVerify)
+                .withExecutor(getExecutor())
+                .withTimeout(connectTimeout)
+                .withRequestTimeout(requestTimeout)
+                .withHttpVersion(httpVersion)
+                .withRetryPolicy(retryPolicy)
+                .withRateLimiter(rateLimiter)
+                .withCircuitBreaker(circuitBreaker)
                 .build();
-        return this;
+        registry.authProvider = authProvider;
+        return registry;
+    }
+
+    /**
+     * Get the size of the chunks for chunked blob upload
+     * @return The chunk size in bytes, 0 if blobs are uploaded in a single request
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the number of retried requests and restarted blob uploads since the registry was built
+     * @return The number of retries
+     */
+    public long getRetryCount() {
+        return client.getRetryCount();
+    }
+
+    /**
+     * Get the circuit breaker, for example to monitor the state of the breaker of each registry host
+     * @return The circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 
     /**
@@ -249,46 +456,77 @@ public final class Registry extends OCI<ContainerRef> {
     public void pullArtifact(ContainerRef containerRef, Path path, boolean overwrite) {
 
         // Only collect layer that are files
-        String contentType = getContentType(containerRef);
-        List<Layer> layers = collectLayers(containerRef, contentType, false);
+        List<Layer> layers = collectLayers(containerRef, resolve(containerRef, false), false);
         if (layers.isEmpty()) {
             LOG.info("Skipped pulling layers without file name in '{}'", Const.ANNOTATION_TITLE);
             return;
         }
+        List<Callable<Path>> tasks = new ArrayList<>();
         for (Layer layer : layers) {
-            try (InputStream is = fetchBlob(containerRef.withDigest(layer.getDigest()))) {
-                // Unpack or just copy blob
-                if (Boolean.parseBoolean(layer.getAnnotations().getOrDefault(Const.ANNOTATION_ORAS_UNPACK, "false"))) {
-                    LOG.debug("Extracting blob to: {}", path);
-
-                    // Uncompress the tar.gz archive and verify digest if present
-                    LocalPath tempArchive = ArchiveUtils.uncompress(is, layer.getMediaType());
-                    String expectedDigest = layer.getAnnotations().get(Const.ANNOTATION_ORAS_CONTENT_DIGEST);
-                    if (expectedDigest != null) {
-                        LOG.trace("Expected digest: {}", expectedDigest);
-                        String actualDigest = containerRef.getAlgorithm().digest(tempArchive.getPath());
-                        LOG.trace("Actual digest: {}", actualDigest);
-                        if (!expectedDigest.equals(actualDigest)) {
-                            throw new OrasException(
-                                    "Digest mismatch: expected %s but got %s".formatted(expectedDigest, actualDigest));
-                        }
-                    }
+            tasks.add(() -> pullLayer(containerRef, layer, path, overwrite));
+        }
+        executeAll(tasks);
+    }
 
-                    // Extract the tar
-                    ArchiveUtils.untar(Files.newInputStream(tempArchive.getPath()), path);
+    /**
+     * Pull a single layer into the given directory. Partial files are removed on failure
+     * @param containerRef The container
+     * @param layer The layer
+     * @param path The target directory
+     * @param overwrite Overwrite the file if it exists
+     * @return The path of the extracted directory or copied file
+     */
+    private Path pullLayer(ContainerRef containerRef, Layer layer, Path path, boolean overwrite) {
+        try (DigestingInputStream is = fetchBlob(containerRef.withDigest(layer.getDigest()))) {
+            // Unpack or just copy blob
+            if (Boolean.parseBoolean(layer.getAnnotations().getOrDefault(Const.ANNOTATION_ORAS_UNPACK, "false"))) {
+                LOG.debug("Extracting blob to: {}", path);
+
+                // Uncompress the tar.gz archive and verify digest if present while it's written
+                String expectedDigest = layer.getAnnotations().get(Const.ANNOTATION_ORAS_CONTENT_DIGEST);
+                LOG.trace("Expected digest: {}", expectedDigest);
+                LocalPath tempArchive = ArchiveUtils.uncompress(is, layer.getMediaType(), expectedDigest);
+                Path extractPath = null;
+                try {
+                    // The blob must be verified before anything is extracted
+                    is.verify(layer.getDigest());
+
+                    // Extract the tar next to the target and move it once complete
+                    extractPath = Files.createTempDirectory(path, ".oras-");
+                    try (InputStream tar = Files.newInputStream(tempArchive.getPath())) {
+                        ArchiveUtils.untar(tar, extractPath);
+                    }
+                    moveTree(extractPath, path);
+                } finally {
+                    Files.deleteIfExists(tempArchive.getPath());
+                    if (extractPath != null) {
+                        deleteTree(extractPath);
+                    }
+                }
+                LOG.info("Extracted: {}", layer.getDigest());
+                return path;
+            }
 
+            // Download next to the target and move it once complete
+            Path targetPath =
+                    path.resolve(layer.getAnnotations().getOrDefault(Const.ANNOTATION_TITLE, layer.getDigest()));
+            LOG.debug("Copying blob to: {}", targetPath);
+            Path partialPath = Files.createTempFile(path, ".oras-", ".part");
+            try {
+                Files.copy(is, partialPath, StandardCopyOption.REPLACE_EXISTING);
+                if (overwrite) {
+                    Files.move(partialPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
                 } else {
-                    Path targetPath = path.resolve(
-                            layer.getAnnotations().getOrDefault(Const.ANNOTATION_TITLE, layer.getDigest()));
-                    LOG.debug("Copying blob to: {}", targetPath);
-                    Files.copy(
-                            is,
-                            targetPath,
-                            overwrite ? StandardCopyOption.REPLACE_EXISTING : StandardCopyOption.ATOMIC_MOVE);
+                    Files.move(partialPath, targetPath);
                 }
-            } catch (IOException e) {
-                throw new OrasException("Failed to pull artifact", e);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(partialPath);
+                throw e;
             }
+            LOG.info("Downloaded: {}", layer.getDigest());
+            return targetPath;
+        } catch (IOException e) {
+            throw new OrasException("Failed to pull artifact", e);
         }
     }
 
@@ -311,10 +549,10 @@ public final class Registry extends OCI<ContainerRef> {
         }
 
         // Push layers
-        List<Layer> layers = pushLayers(containerRef, false, paths);
+        List<Layer> layers = pushLayers(containerRef, paths);
 
-        // Push the config like any other blob
-        Config pushedConfig = pushConfig(containerRef, config != null ? config : Config.empty());
+        // Push the config like any other blob. The digest of the ref is the one of the manifest
+        Config pushedConfig = pushConfig(containerRef.withoutDigest(), config != null ? config : Config.empty());
 
         // Add layer and config
         manifest = manifest.withLayers(layers).withConfig(pushedConfig);
@@ -334,7 +572,246 @@ public final class Registry extends OCI<ContainerRef> {
      * @param targetContainer The target container
      */
     public void copy(Registry targetRegistry, ContainerRef sourceContainer, ContainerRef targetContainer) {
-        throw new OrasException("Not implemented");
+        copy(targetRegistry, sourceContainer, targetContainer, false);
+    }
+
+    /**
+     * Copy an artifact from one container to another.
+     * Blobs are streamed from this registry to the target registry without temporary files and skipped
+     * if already present on the target.
+     * @param targetRegistry The target registry
+     * @param sourceContainer The source container
+     * @param targetContainer The target container
+     * @param recursive True if referrers should be copied
+     */
+    public void copy(
+            Registry targetRegistry, ContainerRef sourceContainer, ContainerRef targetContainer, boolean recursive) {
+
+        Descriptor resolved = resolve(sourceContainer, true);
+        String manifestDigest;
+
+        // Single manifest
+        if (resolved instanceof Manifest manifest) {
+            manifestDigest = manifest.getDescriptor().getDigest();
+            copyManifest(targetRegistry, sourceContainer, targetContainer, manifest);
+        }
+        // Index
+        else {
+            Index index = (Index) resolved;
+            manifestDigest = index.getDescriptor().getDigest();
+
+            // Copy all manifests with their blobs before the index
+            List<Callable<Manifest>> tasks = new ArrayList<>();
+            for (ManifestDescriptor descriptor : index.getManifests()) {
+                tasks.add(() -> copyManifest(
+                        targetRegistry,
+                        sourceContainer.withDigest(descriptor.getDigest()),
+                        targetContainer.withDigest(descriptor.getDigest()),
+                        getManifest(sourceContainer.withDigest(descriptor.getDigest()))));
+            }
+            executeAll(tasks);
+            String json = index.getJson() != null ? index.getJson() : index.toJson();
+            targetRegistry.putManifest(
+                    targetContainer, index.getDescriptor().getMediaType(), json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (recursive) {
+            LOG.debug("Recursively copy referrers");
+            Referrers referrers = getReferrers(sourceContainer.withDigest(manifestDigest), null);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (ManifestDescriptor referer : referrers.getManifests()) {
+                tasks.add(() -> {
+                    LOG.info("Copy reference {}", referer.getDigest());
+                    copy(
+                            targetRegistry,
+                            sourceContainer.withDigest(referer.getDigest()),
+                            targetContainer.withDigest(referer.getDigest()),
+                            true);
+                    return null;
+                });
+            }
+            executeAll(tasks);
+        }
+    }
+
+    /**
+     * Copy the config and layers of a manifest then the manifest itself
+     * @param targetRegistry The target registry
+     * @param sourceContainer The source container
+     * @param targetContainer The target container
+     * @param manifest The manifest to copy
+     * @return The manifest
+     */
+    private Manifest copyManifest(
+            Registry targetRegistry, ContainerRef sourceContainer, ContainerRef targetContainer, Manifest manifest) {
+
+        // Unique blobs, config first
+        Map<String, Long> blobs = new LinkedHashMap<>();
+        blobs.put(manifest.getConfig().getDigest(), manifest.getConfig().getSize());
+        for (Layer layer : manifest.getLayers()) {
+            blobs.put(layer.getDigest(), layer.getSize());
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        blobs.forEach((digest, size) -> tasks.add(() -> {
+            copyBlob(targetRegistry, sourceContainer.withDigest(digest), targetContainer.withDigest(digest), size);
+            return null;
+        }));
+        executeAll(tasks);
+
+        // Push the original manifest to keep its digest
+        String json = manifest.getJson() != null ? manifest.getJson() : manifest.toJson();
+        targetRegistry.putManifest(
+                targetContainer, manifest.getDescriptor().getMediaType(), json.getBytes(StandardCharsets.UTF_8));
+        return manifest;
+    }
+
+    /**
+     * Stream a blob from this registry to the target registry unless the target already has it
+     * @param targetRegistry The target registry
+     * @param sourceBlob The source container with the blob digest
+     * @param targetBlob The target container with the blob digest
+     * @param size The size of the blob if known
+     */
+    private void copyBlob(
+            Registry targetRegistry, ContainerRef sourceBlob, ContainerRef targetBlob, @Nullable Long size) {
+        if (targetRegistry.hasBlob(targetBlob)) {
+            LOG.info("Blob already exists: {}", targetBlob.getDigest());
+            return;
+        }
+        // Try to mount when both repositories are on the same registry
+        boolean sameRegistry = sourceBlob.getApiRegistry().equals(targetBlob.getApiRegistry());
+        OrasHttpClient.ResponseWrapper<String> response =
+                targetRegistry.startUpload(targetBlob, sameRegistry ? sourceBlob : null);
+        if (response.statusCode() == 201) {
+            LOG.info("Mounted blob: {}", targetBlob.getDigest());
+            return;
+        }
+        try (InputStream is = fetchBlob(sourceBlob)) {
+            targetRegistry.completeUpload(targetBlob, response, is, size != null ? size : -1);
+            LOG.info("Copied blob: {}", targetBlob.getDigest());
+        } catch (IOException e) {
+            throw new OrasException("Failed to copy blob", e);
+        }
+    }
+
+    /**
+     * Mount a blob from another repository of the same registry without transferring its content.
+     * See <a href="https://github.com/opencontainers/distribution-spec/blob/main/spec.md#mounting-a-blob-from-another-repository">Mounting a blob from another repository</a>
+     * @param sourceContainer The source container with the blob digest
+     * @param targetContainer The target container
+     * @return True if the blob was mounted, false if the registry did not mount it and the blob must be uploaded.
+     * The upload session started instead of the mount is cancelled
+     */
+    public boolean mountBlob(ContainerRef sourceContainer, ContainerRef targetContainer) {
+        String digest = sourceContainer.getDigest();
+        if (digest == null) {
+            throw new OrasException("Missing digest");
+        }
+        OrasHttpClient.ResponseWrapper<String> response =
+                startUpload(targetContainer.withDigest(digest), sourceContainer);
+        if (response.statusCode() == 201) {
+            return true;
+        }
+        cancelUpload(getLocation(targetContainer, response));
+        return false;
+    }
+
+    /**
+     * Start a blob upload session, or mount the blob from another repository of the same registry
+     * @param containerRef The container with the blob digest
+     * @param mountFrom The container to mount the blob from or null to only start an upload session
+     * @return The response. 201 if the blob was mounted, 202 if an upload session was started
+     */
+    private OrasHttpClient.ResponseWrapper<String> startUpload(
+            ContainerRef containerRef, @Nullable ContainerRef mountFrom) {
+        URI uri = URI.create("%s://%s"
+                .formatted(
+                        getScheme(),
+                        mountFrom != null
+                                ? containerRef.getBlobsUploadMountPath(mountFrom)
+                                : containerRef.getBlobsUploadPath()));
+        OrasHttpClient.ResponseWrapper<String> response = client.post(uri, new byte[0], Map.of());
+        logResponse(response);
+
+        // Switch to bearer auth if needed and retry first request
+        if (switchTokenAuth(containerRef, response)) {
+            response = client.post(uri, new byte[0], Map.of());
+            logResponse(response);
+        }
+        handleError(response);
+        return response;
+    }
+
+    /**
+     * Complete an upload session started with a single PUT of a stream of known size and digest
+     * @param containerRef The container with the blob digest
+     * @param session The response that started the upload session
+     * @param input The input stream
+     * @param size The size of the stream or -1 if unknown
+     */
+    private void completeUpload(
+            ContainerRef containerRef, OrasHttpClient.ResponseWrapper<String> session, InputStream input, long size) {
+        String digest = containerRef.getDigest();
+        if (digest == null) {
+            throw new OrasException("Missing digest");
+        }
+        String location = getLocation(containerRef, session);
+        LOG.debug("Location header: {}", location);
+        OrasHttpClient.ResponseWrapper<String> response = client.uploadStream(
+                "PUT",
+                URI.create(appendQuery(location, "digest=%s".formatted(digest))),
+                input,
+                size,
+                Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
+        logResponse(response);
+        handleError(response);
+    }
+
+    /**
+     * Put a manifest or index with its original content to keep the digest
+     * @param containerRef The container
+     * @param contentType The content type
+     * @param data The manifest or index
+     */
+    private void putManifest(ContainerRef containerRef, String contentType, byte[] data) {
+        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getManifestsPath()));
+        OrasHttpClient.ResponseWrapper<String> response =
+                client.put(uri, data, Map.of(Const.CONTENT_TYPE_HEADER, contentType));
+        logResponse(response);
+        if (switchTokenAuth(containerRef, response)) {
+            response = client.put(uri, data, Map.of(Const.CONTENT_TYPE_HEADER, contentType));
+            logResponse(response);
+        }
+        handleError(response);
+    }
+
+    /**
+     * Get the absolute location of an upload session
+     * @param containerRef The container
+     * @param response The response starting the upload
+     * @return The location
+     */
+    private String getLocation(ContainerRef containerRef, OrasHttpClient.ResponseWrapper<String> response) {
+        String location = response.headers().get(Const.LOCATION_HEADER.toLowerCase());
+        if (location == null) {
+            throw new OrasException("Location header not found in upload response");
+        }
+        // Ensure location is absolute URI
+        if (!location.startsWith("http") && !location.startsWith("https")) {
+            location =
+                    "%s://%s/%s".formatted(getScheme(), containerRef.getApiRegistry(), location.replaceFirst("^/", ""));
+        }
+        return location;
+    }
+
+    /**
+     * Append a query parameter to a location that might already contain a query
+     * @param location The location
+     * @param query The query parameter
+     * @return The location with the query
+     */
+    private String appendQuery(String location, String query) {
+        return "%s%s%s".formatted(location, location.contains("?") ? "&" : "?", query);
     }
 
     /**
@@ -360,7 +837,7 @@ public final class Registry extends OCI<ContainerRef> {
             ContainerRef containerRef, ArtifactType artifactType, Annotations annotations, LocalPath... paths) {
 
         // Push layers
-        List<Layer> layers = pushLayers(containerRef, false, paths);
+        List<Layer> layers = pushLayers(containerRef, paths);
 
         // Get the subject from the manifest
         Subject subject = getManifest(containerRef).getDescriptor().toSubject();
@@ -386,14 +863,83 @@ public final class Registry extends OCI<ContainerRef> {
 
     @Override
     public Layer pushBlob(ContainerRef containerRef, Path blob, Map<String, String> annotations) {
+        return pushBlob(containerRef, blob, annotations, null);
+    }
+
+    /**
+     * Push a blob from file, mounting it from another repository of the same registry if possible.
+     * The file is uploaded in the upload session started by the registry if it does not mount the blob
+     * @param containerRef The container
+     * @param blob The blob
+     * @param annotations The annotations
+     * @param mountFrom The container to mount the blob from or null to always upload it
+     * @return The layer
+     */
+    public Layer pushBlob(
+            ContainerRef containerRef, Path blob, Map<String, String> annotations, @Nullable ContainerRef mountFrom) {
         String digest = containerRef.getAlgorithm().digest(blob);
         LOG.debug("Digest: {}", digest);
+        Layer layer;
+        try {
+            layer = Layer.fromDigest(digest, Files.size(blob))
+                    .withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE)
+                    .withAnnotations(annotations);
+        } catch (IOException e) {
+            throw new OrasException("Failed to push blob", e);
+        }
         if (hasBlob(containerRef.withDigest(digest))) {
             LOG.info("Blob already exists: {}", digest);
-            return Layer.fromFile(blob, containerRef.getAlgorithm()).withAnnotations(annotations);
+            return layer;
         }
-        URI uri = URI.create(
-                "%s://%s".formatted(getScheme(), containerRef.withDigest(digest).getBlobsUploadDigestPath()));
+
+        // Only the first attempt reuses the session started instead of the mount
+        AtomicReference<OrasHttpClient.ResponseWrapper<String>> session = new AtomicReference<>();
+        if (mountFrom != null) {
+            OrasHttpClient.ResponseWrapper<String> response = startUpload(containerRef.withDigest(digest), mountFrom);
+            if (response.statusCode() == 201) {
+                LOG.info("Mounted blob: {}", digest);
+                return layer;
+            }
+            session.set(response);
+        }
+        retryUpload(() -> {
+            uploadFile(containerRef.withDigest(digest), blob, session.getAndSet(null));
+            return null;
+        });
+        return layer;
+    }
+
+    /**
+     * Upload a file in chunks if chunked upload is enabled and the file is larger than a chunk, else streamed
+     * in a single POST, or POST then PUT if the registry requires it
+     * @param containerRef The container with the digest of the file
+     * @param blob The file
+     * @param session An upload session already started or null to start one
+     */
+    private void uploadFile(
+            ContainerRef containerRef, Path blob, OrasHttpClient.@Nullable ResponseWrapper<String> session) {
+        String digest = containerRef.getDigest();
+
+        // Large files are uploaded in chunks if enabled, else streamed in the existing session
+        try {
+            if (chunkSize > 0 && Files.size(blob) > chunkSize) {
+                try (InputStream is = Files.newInputStream(blob)) {
+                    byte[] buffer = new byte[chunkSize];
+                    uploadChunked(containerRef, session, is, buffer, is.readNBytes(buffer, 0, chunkSize));
+                }
+                return;
+            }
+            if (session != null) {
+                try (InputStream is = Files.newInputStream(blob)) {
+                    completeUpload(containerRef, session, is, Files.size(blob));
+                }
+                return;
+            }
+        } catch (IOException e) {
+            throw new OrasException("Failed to push blob", e);
+        }
+
+        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getBlobsUploadDigestPath()));
         OrasHttpClient.ResponseWrapper<String> response = client.upload(
                 "POST", uri, Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE), blob);
         logResponse(response);
@@ -407,21 +953,16 @@ public final class Registry extends OCI<ContainerRef> {
 
         // Accepted single POST push
         if (response.statusCode() == 201) {
-            return Layer.fromFile(blob, containerRef.getAlgorithm()).withAnnotations(annotations);
+            return;
         }
 
         // We need to push via PUT
         if (response.statusCode() == 202) {
-            String location = response.headers().get(Const.LOCATION_HEADER.toLowerCase());
-            // Ensure location is absolute URI
-            if (!location.startsWith("http") && !location.startsWith("https")) {
-                location = "%s://%s/%s"
-                        .formatted(getScheme(), containerRef.getApiRegistry(), location.replaceFirst("^/", ""));
-            }
+            String location = getLocation(containerRef, response);
             LOG.debug("Location header: {}", location);
             response = client.upload(
                     "PUT",
-                    URI.create("%s&digest=%s".formatted(location, digest)),
+                    URI.create(appendQuery(location, "digest=%s".formatted(digest))),
                     Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE),
                     blob);
             if (response.statusCode() == 201) {
@@ -432,59 +973,353 @@ public final class Registry extends OCI<ContainerRef> {
         }
 
         handleError(response);
-        return Layer.fromFile(blob, containerRef.getAlgorithm()).withAnnotations(annotations);
+    }
+
+    /**
+     * Run a blob upload, restarting it from a fresh upload session on transient failures
+     * @param upload The upload
+     * @param <R> The result type
+     * @return The result of the upload
+     */
+    private <R> R retryUpload(Supplier<R> upload) {
+        return client.retry(upload);
     }
 
     @Override
-    public Layer pushBlob(ContainerRef containerRef, byte[] data) {
-        String digest = containerRef.getAlgorithm().digest(data);
-        if (containerRef.getDigest() != null) {
-            ensureDigest(containerRef, data);
-        }
-        if (hasBlob(containerRef.withDigest(digest))) {
-            LOG.info("Blob already exists: {}", digest);
-            return Layer.fromData(containerRef, data);
-        }
-        URI uri = URI.create(
-                "%s://%s".formatted(getScheme(), containerRef.withDigest(digest).getBlobsUploadDigestPath()));
-        OrasHttpClient.ResponseWrapper<String> response =
-                client.post(uri, data, Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
-        logResponse(response);
+    public Layer pushBlob(ContainerRef containerRef, InputStream input) {
+        return pushBlob(containerRef, input, null);
+    }
 
-        // Switch to bearer auth if needed and retry first request
-        if (switchTokenAuth(containerRef, response)) {
-            response = client.post(
-                    uri, data, Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
-            logResponse(response);
-        }
+    /**
+     * Push the content of a layer. The digest of the ref, if any, is the one of the manifest and not of the layer
+     * @param containerRef The container
+     * @param input The input stream
+     * @return The layer
+     */
+    @Override
+    protected Layer pushLayerBlob(ContainerRef containerRef, InputStream input) {
+        return pushBlob(containerRef.withoutDigest(), input);
+    }
 
-        // Accepted single POST push
-        if (response.statusCode() == 201) {
-            return Layer.fromData(containerRef, data);
+    /**
+     * Push a blob from an input stream, mounting it from another repository of the same registry if possible.
+     * The stream is not read if the blob is mounted, else it's uploaded in the upload session started by the registry.
+     * The size of a mounted blob is the one reported by the registry, the push fails if the registry doesn't report it
+     * @param containerRef The container with the blob digest, required to mount the blob
+     * @param input The input stream
+     * @param mountFrom The container to mount the blob from or null to always upload it
+     * @return The layer
+     */
+    public Layer pushBlob(ContainerRef containerRef, InputStream input, @Nullable ContainerRef mountFrom) {
+        String expectedDigest = containerRef.getDigest();
+        if (expectedDigest != null) {
+            Layer existing = getExistingBlob(containerRef, expectedDigest);
+            if (existing != null) {
+                LOG.info("Blob already exists: {}", expectedDigest);
+                return existing;
+            }
         }
 
-        // We need to push via PUT
-        if (response.statusCode() == 202) {
-            String location = response.headers().get(Const.LOCATION_HEADER.toLowerCase());
-            // Ensure location is absolute URI
-            if (!location.startsWith("http") && !location.startsWith("https")) {
-                location = "%s://%s/%s"
-                        .formatted(getScheme(), containerRef.getApiRegistry(), location.replaceFirst("^/", ""));
+        OrasHttpClient.ResponseWrapper<String> session = null;
+        if (mountFrom != null) {
+            if (expectedDigest == null) {
+                throw new OrasException("Missing digest");
             }
-            LOG.debug("Location header: {}", location);
-            response = client.put(
-                    URI.create("%s&digest=%s".formatted(location, digest)),
-                    data,
-                    Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
-            if (response.statusCode() == 201) {
-                LOG.debug("Successful push: {}", response.response());
-            } else {
-                throw new OrasException("Failed to push layer: %s".formatted(response.response()));
+            session = startUpload(containerRef, mountFrom);
+            if (session.statusCode() == 201) {
+                LOG.info("Mounted blob: {}", expectedDigest);
+                Layer mounted = getExistingBlob(containerRef, expectedDigest);
+                if (mounted == null) {
+                    throw new OrasException("Unknown size of mounted blob: %s".formatted(expectedDigest));
+                }
+                return mounted;
             }
         }
 
-        handleError(response);
-        return Layer.fromData(containerRef, data);
+        SupportedAlgorithm algorithm = containerRef.getAlgorithm();
+        byte[] buffer = new byte[chunkSize > 0 ? chunkSize : Const.DEFAULT_CHUNK_SIZE];
+        int read;
+        try {
+            read = input.readNBytes(buffer, 0, buffer.length);
+        } catch (IOException e) {
+            throw new OrasException("Failed to read blob", e);
+        }
+
+        // Small blob fits a single request
+        if (read < buffer.length) {
+            byte[] data = Arrays.copyOf(buffer, read);
+            String digest = algorithm.digest(data);
+            if (expectedDigest != null && !expectedDigest.equals(digest)) {
+                if (session != null) {
+                    cancelUpload(getLocation(containerRef, session));
+                }
+                throw new OrasException("Digest mismatch: %s != %s".formatted(expectedDigest, digest));
+            }
+            if (session != null) {
+                completeUpload(containerRef, session, new ByteArrayInputStream(data), read);
+            } else {
+                uploadMonolithic(containerRef, digest, data);
+            }
+            return Layer.fromDigest(digest, read).withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE);
+        }
+
+        // Streamed in a single PUT unless chunked upload is enabled. The digest of the PUT must be known upfront
+        if (chunkSize == 0 && expectedDigest != null) {
+            DigestingInputStream remaining = new DigestingInputStream(
+                    new SequenceInputStream(new ByteArrayInputStream(buffer, 0, read), input), algorithm);
+            completeUpload(containerRef, session != null ? session : startUpload(containerRef, null), remaining, -1);
+            LOG.debug("Successful push of {} bytes", remaining.getSize());
+            return Layer.fromDigest(expectedDigest, remaining.getSize()).withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE);
+        }
+        return uploadChunked(containerRef, session, input, buffer, read);
+    }
+
+    /**
+     * Get the layer of a blob if the registry has it
+     * @param containerRef The container with the blob digest
+     * @param digest The blob digest
+     * @return The layer or null if the registry doesn't have the blob or doesn't return its size
+     */
+    private @Nullable Layer getExistingBlob(ContainerRef containerRef, String digest) {
+        OrasHttpClient.ResponseWrapper<String> response = headBlob(containerRef);
+        String size = response.headers().get(Const.CONTENT_LENGTH_HEADER.toLowerCase());
+        if (response.statusCode() != 200 || size == null) {
+            return null;
+        }
+        return Layer.fromDigest(digest, Long.parseLong(size)).withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE);
+    }
+
+    /**
+     * Upload a blob in chunks. The digest is computed while reading each chunk and the last chunk is sent with
+     * the closing PUT
+     * @param containerRef The container. If it has a digest, the content must match it
+     * @param session An upload session already started or null to start one
+     * @param input The remaining input
+     * @param buffer The chunk buffer
+     * @param read The number of bytes already read into the buffer
+     * @return The layer
+     */
+    private Layer uploadChunked(
+            ContainerRef containerRef,
+            OrasHttpClient.@Nullable ResponseWrapper<String> session,
+            InputStream input,
+            byte[] buffer,
+            int read) {
+        String expectedDigest = containerRef.getDigest();
+        SupportedAlgorithm algorithm = containerRef.getAlgorithm();
+        MessageDigest messageDigest = algorithm.newMessageDigest();
+        OrasHttpClient.ResponseWrapper<String> response = session != null ? session : startUpload(containerRef, null);
+        String location = getLocation(containerRef, response);
+        byte[] lastChunk;
+        long offset = 0;
+        try {
+            // Chunks must not be smaller than the minimum of the registry
+            int minLength = getChunkMinLength(response);
+            if (minLength > buffer.length) {
+                LOG.debug("Registry requires chunks of at least {} bytes, increasing chunk size", minLength);
+                buffer = Arrays.copyOf(buffer, minLength);
+                read += input.readNBytes(buffer, read, minLength - read);
+            }
+            while (true) {
+                messageDigest.update(buffer, 0, read);
+                if (read < buffer.length) {
+                    lastChunk = Arrays.copyOf(buffer, read);
+                    offset += read;
+                    break;
+                }
+                location = uploadChunk(containerRef, location, buffer, offset);
+                offset += read;
+                read = input.readNBytes(buffer, 0, buffer.length);
+            }
+        } catch (IOException e) {
+            cancelUpload(location);
+            throw new OrasException("Failed to read blob", e);
+        }
+
+        String digest = algorithm.digest(messageDigest);
+        LOG.debug("Digest: {}", digest);
+        if (expectedDigest != null && !expectedDigest.equals(digest)) {
+            cancelUpload(location);
+            throw new OrasException("Digest mismatch: %s != %s".formatted(expectedDigest, digest));
+        }
+        response = client.put(
+                URI.create(appendQuery(location, "digest=%s".formatted(digest))),
+                lastChunk,
+                Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
+        logResponse(response);
+        handleError(response);
+        LOG.debug("Successful push of {} bytes", offset);
+        return Layer.fromDigest(digest, offset).withMediaType(Const.DEFAULT_BLOB_MEDIA_TYPE);
+    }
+
+    /**
+     * Upload a full chunk with PATCH. If the request fails, the upload status is queried and the chunk is resumed
+     * from the last byte received by the registry
+     * @param containerRef The container
+     * @param location The location of the upload session
+     * @param chunk The chunk
+     * @param offset The offset of the chunk in the blob
+     * @return The location of the upload session for the next chunk
+     */
+    private String uploadChunk(ContainerRef containerRef, String location, byte[] chunk, long offset) {
+        int sent = 0;
+        for (int attempt = 0; ; attempt++) {
+            byte[] body = sent == 0 ? chunk : Arrays.copyOfRange(chunk, sent, chunk.length);
+            try {
+                OrasHttpClient.ResponseWrapper<String> response = client.patch(
+                        URI.create(location),
+                        body,
+                        Map.of(
+                                Const.CONTENT_TYPE_HEADER,
+                                Const.APPLICATION_OCTET_STREAM_HEADER_VALUE,
+                                Const.CONTENT_RANGE_HEADER,
+                                "%d-%d".formatted(offset + sent, offset + chunk.length - 1)));
+                logResponse(response);
+                handleError(response);
+                return getLocation(containerRef, response);
+            } catch (OrasException e) {
+                // Only network failures, server errors and range mismatch can be resumed
+                int status = e.getStatusCode();
+                if (attempt >= MAX_CHUNK_RESUME || (status != -1 && status < 500 && status != 416)) {
+                    throw e;
+                }
+                LOG.warn("Failed to upload chunk at offset {}, resuming upload", offset + sent, e);
+            }
+
+            // Query how much the registry has received
+            OrasHttpClient.ResponseWrapper<String> status = client.get(URI.create(location), Map.of());
+            logResponse(status);
+            handleError(status);
+            location = getLocation(containerRef, status);
+            long received = getUploadedSize(status);
+            if (received < offset || received > offset + chunk.length) {
+                throw new OrasException(
+                        "Cannot resume upload at offset %d from chunk at offset %d".formatted(received, offset));
+            }
+            if (received == offset + chunk.length) {
+                return location;
+            }
+            sent = (int) (received - offset);
+        }
+    }
+
+    /**
+     * Get the number of bytes received by the registry from the Range header of an upload status response.
+     * A range of 0-0 is considered empty as returned by registries before any byte is received
+     * @param response The upload status response
+     * @return The number of bytes received
+     */
+    private long getUploadedSize(OrasHttpClient.ResponseWrapper<String> response) {
+        String range = response.headers().get(Const.RANGE_HEADER.toLowerCase());
+        if (range == null || range.equals("0-0")) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(range.substring(range.indexOf('-') + 1)) + 1;
+        } catch (NumberFormatException e) {
+            throw new OrasException("Invalid upload range: %s".formatted(range), e);
+        }
+    }
+
+    /**
+     * Get the minimum chunk size announced by the registry when starting an upload session
+     * @param response The response that started the upload session
+     * @return The minimum chunk size in bytes, 0 if not announced
+     */
+    private int getChunkMinLength(OrasHttpClient.ResponseWrapper<String> response) {
+        String minLength = response.headers().get(Const.OCI_CHUNK_MIN_LENGTH_HEADER.toLowerCase());
+        if (minLength == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(minLength.trim());
+        } catch (NumberFormatException e) {
+            LOG.debug("Ignoring invalid {} header: {}", Const.OCI_CHUNK_MIN_LENGTH_HEADER, minLength);
+            return 0;
+        }
+    }
+
+    /**
+     * Cancel an upload session. Failures are only logged since the registry will expire the session anyway
+     * @param location The location of the upload session
+     */
+    private void cancelUpload(String location) {
+        try {
+            logResponse(client.delete(URI.create(location), Map.of()));
+        } catch (OrasException e) {
+            LOG.debug("Failed to cancel upload {}", location, e);
+        }
+    }
+
+    @Override
+    public Layer pushBlob(ContainerRef containerRef, byte[] data) {
+        String digest = containerRef.getAlgorithm().digest(data);
+        String expectedDigest = containerRef.getDigest();
+        if (expectedDigest != null && !expectedDigest.equals(digest)) {
+            throw new OrasException("Digest mismatch: %s != %s".formatted(expectedDigest, digest));
+        }
+        if (hasBlob(containerRef.withDigest(digest))) {
+            LOG.info("Blob already exists: {}", digest);
+            return Layer.fromData(digest, data);
+        }
+        uploadMonolithic(containerRef, digest, data);
+        return Layer.fromData(digest, data);
+    }
+
+    /**
+     * Upload a blob in a single POST, or POST then PUT if the registry requires it
+     * @param containerRef The container
+     * @param digest The digest of the data
+     * @param data The data
+     */
+    private void uploadMonolithic(ContainerRef containerRef, String digest, byte[] data) {
+        retryUpload(() -> {
+            uploadMonolithicOnce(containerRef, digest, data);
+            return null;
+        });
+    }
+
+    /**
+     * Upload a blob in a single POST, or POST then PUT if the registry requires it, without retry
+     * @param containerRef The container
+     * @param digest The digest of the data
+     * @param data The data
+     */
+    private void uploadMonolithicOnce(ContainerRef containerRef, String digest, byte[] data) {
+        URI uri = URI.create(
+                "%s://%s".formatted(getScheme(), containerRef.withDigest(digest).getBlobsUploadDigestPath()));
+        OrasHttpClient.ResponseWrapper<String> response =
+                client.post(uri, data, Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
+        logResponse(response);
+
+        // Switch to bearer auth if needed and retry first request
+        if (switchTokenAuth(containerRef, response)) {
+            response = client.post(
+                    uri, data, Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
+            logResponse(response);
+        }
+
+        // Accepted single POST push
+        if (response.statusCode() == 201) {
+            return;
+        }
+
+        // We need to push via PUT
+        if (response.statusCode() == 202) {
+            String location = getLocation(containerRef, response);
+            LOG.debug("Location header: {}", location);
+            response = client.put(
+                    URI.create(appendQuery(location, "digest=%s".formatted(digest))),
+                    data,
+                    Map.of(Const.CONTENT_TYPE_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
+            if (response.statusCode() == 201) {
+                LOG.debug("Successful push: {}", response.response());
+            } else {
+                throw new OrasException("Failed to push layer: %s".formatted(response.response()));
+            }
+        }
+
+        handleError(response);
     }
 
     /**
@@ -518,36 +1353,308 @@ public final class Registry extends OCI<ContainerRef> {
      */
     @Override
     public byte[] getBlob(ContainerRef containerRef) {
+        if (containerRef.getDigest() == null) {
+            throw new OrasException("Missing digest");
+        }
+        // Verified at the end of the stream
         try (InputStream is = fetchBlob(containerRef)) {
-            return ensureDigest(containerRef, is.readAllBytes());
+            return is.readAllBytes();
         } catch (IOException e) {
             throw new OrasException("Failed to get blob", e);
         }
     }
 
+    /**
+     * Download a blob to a file. The content is downloaded into a {@code .part} file next to the target, which is
+     * resumed if an earlier download was interrupted, and moved atomically to the target once its digest is verified.
+     * An existing target file is replaced
+     * @param containerRef The container with the blob digest
+     * @param path The target file
+     * @return The descriptor of the blob
+     */
     @Override
-    public void fetchBlob(ContainerRef containerRef, Path path) {
-        if (!hasBlob(containerRef)) {
-            throw new OrasException(new OrasHttpClient.ResponseWrapper<>("", 404, Map.of()));
+    public Descriptor fetchBlob(ContainerRef containerRef, Path path) {
+        String digest = containerRef.getDigest();
+        if (digest == null) {
+            throw new OrasException("Missing digest");
+        }
+        Path partPath = path.resolveSibling(path.getFileName() + ".part");
+        try {
+            if (downloadSegments > 1 && fetchBlobSegmented(containerRef, partPath)) {
+                long size = Files.size(partPath);
+                moveIntoPlace(partPath, path);
+                return Descriptor.of(digest, size, Const.DEFAULT_DESCRIPTOR_MEDIA_TYPE);
+            }
+            for (int attempt = 0; ; attempt++) {
+
+                // Continue a partial download with a range request
+                long offset = Files.exists(partPath) ? Files.size(partPath) : 0;
+                OrasHttpClient.ResponseWrapper<Path> response;
+                try {
+                    response = downloadBlob(containerRef, partPath, offset);
+                } catch (OrasException e) {
+                    if (e.getStatusCode() != -1 || attempt >= MAX_DOWNLOAD_RESUME) {
+                        throw e;
+                    }
+                    LOG.warn("Download of {} interrupted, resuming", digest, e);
+                    continue;
+                }
+                // Range not satisfiable when the partial download is already complete
+                if (response.statusCode() != 416 || offset == 0) {
+                    handleError(response);
+                }
+
+                String actualDigest = containerRef.getAlgorithm().digestContent(partPath);
+                if (digest.equals(actualDigest)) {
+                    long size = Files.size(partPath);
+                    moveIntoPlace(partPath, path);
+                    return Descriptor.of(digest, size, Const.DEFAULT_DESCRIPTOR_MEDIA_TYPE);
+                }
+                Files.delete(partPath);
+
+                // The partial download was not part of this blob, download it again from the start
+                if (offset > 0 && attempt < MAX_DOWNLOAD_RESUME) {
+                    LOG.warn("Digest mismatch after resuming download of {}, downloading again", digest);
+                    continue;
+                }
+                throw new OrasException("Digest mismatch: %s != %s".formatted(digest, actualDigest));
+            }
+        } catch (IOException e) {
+            throw new OrasException("Failed to download blob", e);
+        }
+    }
+
+    /**
+     * Move a verified download to its target, atomically if the file system supports it
+     * @param partPath The verified download
+     * @param path The target file
+     * @throws IOException If the file cannot be moved
+     */
+    private void moveIntoPlace(Path partPath, Path path) throws IOException {
+        try {
+            Files.move(partPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.debug("Atomic move not supported for {}", path, e);
+            Files.move(partPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Move an extracted directory into its target, merging it with the existing directories.
+     * Existing files are replaced like when extracting in place
+     * @param source The extracted directory
+     * @param target The target directory
+     * @throws IOException If a file cannot be moved
+     */
+    private void moveTree(Path source, Path target) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(source)) {
+            entries = stream.toList();
+        }
+        for (Path entry : entries) {
+            Path destination = target.resolve(entry.getFileName().toString());
+            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)
+                    && Files.isDirectory(destination, LinkOption.NOFOLLOW_LINKS)) {
+                moveTree(entry, destination);
+            } else {
+                moveIntoPlace(entry, destination);
+            }
+        }
+    }
+
+    /**
+     * Delete a directory and its content, such as what remains of a failed extraction
+     * @param path The directory
+     */
+    private void deleteTree(Path path) {
+        try (Stream<Path> stream = Files.walk(path)) {
+            for (Path entry : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(entry);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to delete {}", path, e);
+        }
+    }
+
+    /**
+     * Download a large blob with concurrent range requests into a preallocated file
+     * @param containerRef The container with the blob digest
+     * @param path The file
+     * @return True if the blob was downloaded and verified, false if the blob is too small, the registry does
+     * not accept ranges or the segmented download failed
+     */
+    private boolean fetchBlobSegmented(ContainerRef containerRef, Path path) {
+        OrasHttpClient.ResponseWrapper<String> head = headBlob(containerRef);
+        String length = head.headers().get(Const.CONTENT_LENGTH_HEADER.toLowerCase());
+        if (head.statusCode() != 200
+                || length == null
+                || !"bytes".equals(head.headers().get(Const.ACCEPT_RANGES_HEADER.toLowerCase()))) {
+            return false;
+        }
+        long size = Long.parseLong(length);
+        int segments = (int) Math.min(downloadSegments, size / Const.MIN_SEGMENT_SIZE);
+        if (segments < 2) {
+            return false;
         }
+        long segmentSize = size / segments;
+        LOG.debug("Downloading {} bytes in {} segments", size, segments);
+        try {
+            try (FileChannel channel = FileChannel.open(
+                    path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                // Preallocate the file
+                channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (int i = 0; i < segments; i++) {
+                    long start = i * segmentSize;
+                    long end = i == segments - 1 ? size - 1 : start + segmentSize - 1;
+                    tasks.add(() -> {
+                        fetchSegment(containerRef, channel, start, end);
+                        return null;
+                    });
+                }
+                executeAll(tasks, segments);
+            }
+            String actualDigest = containerRef.getAlgorithm().digestContent(path);
+            if (!actualDigest.equals(containerRef.getDigest())) {
+                throw new OrasException("Digest mismatch: %s != %s".formatted(containerRef.getDigest(), actualDigest));
+            }
+            return true;
+        } catch (IOException | OrasException e) {
+            LOG.warn("Segmented download of {} failed, downloading with a single request", containerRef.getDigest(), e);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                LOG.debug("Failed to delete {}", path, ex);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Download a byte range of a blob and write it at the same position of the file
+     * @param containerRef The container
+     * @param channel The file channel
+     * @param start The first byte
+     * @param end The last byte, inclusive
+     * @throws IOException If the segment cannot be read or written
+     */
+    private void fetchSegment(ContainerRef containerRef, FileChannel channel, long start, long end) throws IOException {
         URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getBlobsPath()));
-        OrasHttpClient.ResponseWrapper<Path> response =
-                client.download(uri, Map.of(Const.ACCEPT_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE), path);
+        OrasHttpClient.ResponseWrapper<InputStream> response = client.download(
+                uri,
+                Map.of(
+                        Const.ACCEPT_HEADER,
+                        Const.APPLICATION_OCTET_STREAM_HEADER_VALUE,
+                        Const.RANGE_HEADER,
+                        "bytes=%d-%d".formatted(start, end)));
         logResponse(response);
         handleError(response);
+        try (InputStream is = response.response()) {
+            String contentRange = response.headers().get(Const.CONTENT_RANGE_HEADER.toLowerCase());
+            if (response.statusCode() != 206
+                    || contentRange == null
+                    || !contentRange.startsWith("bytes %d-%d/".formatted(start, end))) {
+                throw new OrasException("Range %d-%d not served: %s".formatted(start, end, contentRange));
+            }
+            byte[] buffer = new byte[64 * 1024];
+            long position = start;
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                if (position + read > end + 1) {
+                    throw new OrasException("Range %d-%d exceeded".formatted(start, end));
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+            if (position != end + 1) {
+                throw new OrasException("Range %d-%d incomplete at %d".formatted(start, end, position));
+            }
+        }
     }
 
+    /**
+     * Download a blob into a file starting at the given offset
+     * @param containerRef The container
+     * @param path The file
+     * @param offset The number of bytes already in the file
+     * @return The response
+     */
+    private OrasHttpClient.ResponseWrapper<Path> downloadBlob(ContainerRef containerRef, Path path, long offset) {
+        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getBlobsPath()));
+        Map<String, String> headers = Map.of(Const.ACCEPT_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE);
+        OrasHttpClient.ResponseWrapper<Path> response = client.download(uri, headers, path, offset);
+        logResponse(response);
+
+        // Switch to bearer auth if needed and retry first request
+        if (switchTokenAuth(containerRef, response)) {
+            response = client.download(uri, headers, path, offset);
+            logResponse(response);
+        }
+        return response;
+    }
+
+    /**
+     * Fetch the blob as a stream. The content is digested while it's read and reading the end of the stream
+     * throws an {@link OrasException} if it doesn't match the digest.
+     * Only a stream read to its end is verified: callers stopping early must call
+     * {@link DigestingInputStream#verify(String)} or check {@link DigestingInputStream#isVerified()}
+     * before trusting the content
+     * @param containerRef The container with the blob digest
+     * @return The input stream
+     */
     @Override
-    public InputStream fetchBlob(ContainerRef containerRef) {
-        if (!hasBlob(containerRef)) {
-            throw new OrasException(new OrasHttpClient.ResponseWrapper<>("", 404, Map.of()));
+    public DigestingInputStream fetchBlob(ContainerRef containerRef) {
+        return verifying(containerRef, getBlobResponse(containerRef).response());
+    }
+
+    /**
+     * Wrap a blob stream to verify its digest at the end of the stream
+     * @param containerRef The container with the blob digest
+     * @param is The blob stream
+     * @return The verifying stream
+     */
+    private DigestingInputStream verifying(ContainerRef containerRef, InputStream is) {
+        String digest = containerRef.getDigest();
+        if (digest == null) {
+            throw new OrasException("Missing digest");
         }
+        return new DigestingInputStream(is, digest);
+    }
+
+    /**
+     * Issue a single GET request on the blob. Token switch and errors are handled on that same response
+     * @param containerRef The container
+     * @return The response with the blob stream
+     */
+    private OrasHttpClient.ResponseWrapper<InputStream> getBlobResponse(ContainerRef containerRef) {
         URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getBlobsPath()));
-        OrasHttpClient.ResponseWrapper<InputStream> response =
-                client.download(uri, Map.of(Const.ACCEPT_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE));
+        Map<String, String> headers = Map.of(Const.ACCEPT_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE);
+        OrasHttpClient.ResponseWrapper<InputStream> response = client.download(uri, headers);
         logResponse(response);
+
+        // Switch to bearer auth if needed and retry first request
+        if (switchTokenAuth(containerRef, response)) {
+            closeQuietly(response.response());
+            response = client.download(uri, headers);
+            logResponse(response);
+        }
         handleError(response);
-        return response.response();
+        return response;
+    }
+
+    /**
+     * Close the stream, logging any failure
+     * @param is The input stream
+     */
+    private void closeQuietly(InputStream is) {
+        try {
+            is.close();
+        } catch (IOException e) {
+            LOG.debug("Failed to close stream", e);
+        }
     }
 
     @Override
@@ -560,89 +1667,291 @@ public final class Registry extends OCI<ContainerRef> {
     }
 
     public Manifest getManifest(ContainerRef containerRef) {
+        return toManifest(getManifestResponse(containerRef));
+    }
+
+    @Override
+    public Index getIndex(ContainerRef containerRef) {
         OrasHttpClient.ResponseWrapper<String> response = getManifestResponse(containerRef);
-        logResponse(response);
-        handleError(response);
-        String contentType = response.headers().get(Const.CONTENT_TYPE_HEADER.toLowerCase());
+        String contentType = getContentType(response);
+        if (!isIndexMediaType(contentType)) {
+            throw new OrasException("Expected index but got %s".formatted(contentType));
+        }
+        return Index.fromJson(response.response()).withDescriptor(toManifestDescriptor(response, contentType));
+    }
+
+    /**
+     * Get the tags of a container asynchronously
+     * @param containerRef The container
+     * @return The future tags
+     */
+    public CompletableFuture<List<String>> getTagsAsync(ContainerRef containerRef) {
+        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getTagsPath()));
+        return sendAsync(
+                        containerRef,
+                        () -> client.getAsync(uri, Map.of(Const.ACCEPT_HEADER, Const.DEFAULT_JSON_MEDIA_TYPE)))
+                .thenApply(response ->
+                        JsonUtils.fromJson(response.response(), Tags.class).tags());
+    }
+
+    /**
+     * Get the referrers of a container asynchronously
+     * @param containerRef The container
+     * @param artifactType The optional artifact type
+     * @return The future referrers
+     */
+    public CompletableFuture<Referrers> getReferrersAsync(
+            ContainerRef containerRef, @Nullable ArtifactType artifactType) {
+        if (containerRef.getDigest() == null) {
+            return CompletableFuture.failedFuture(new OrasException("Digest is required to get referrers"));
+        }
+        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getReferrersPath(artifactType)));
+        return sendAsync(
+                        containerRef,
+                        () -> client.getAsync(uri, Map.of(Const.ACCEPT_HEADER, Const.DEFAULT_INDEX_MEDIA_TYPE)))
+                .thenApply(response -> JsonUtils.fromJson(response.response(), Referrers.class));
+    }
+
+    /**
+     * Get a manifest asynchronously
+     * @param containerRef The container
+     * @return The future manifest
+     */
+    public CompletableFuture<Manifest> getManifestAsync(ContainerRef containerRef) {
+        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getManifestsPath()));
+        return sendAsync(
+                        containerRef,
+                        () -> client.getAsync(uri, Map.of(Const.ACCEPT_HEADER, Const.MANIFEST_ACCEPT_TYPE)))
+                .thenApply(this::toManifest);
+    }
+
+    /**
+     * Fetch a blob as a stream asynchronously. The future completes once the blob starts to be received.
+     * The stream is verified like the one of {@link #fetchBlob(ContainerRef)}
+     * @param containerRef The container with the blob digest
+     * @return The future stream of the blob
+     */
+    public CompletableFuture<InputStream> fetchBlobAsync(ContainerRef containerRef) {
+        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getBlobsPath()));
+        Map<String, String> headers = Map.of(Const.ACCEPT_HEADER, Const.APPLICATION_OCTET_STREAM_HEADER_VALUE);
+        return sendAsync(containerRef, () -> client.downloadAsync(uri, headers))
+                .thenApply(response -> (InputStream) verifying(containerRef, response.response()));
+    }
+
+    /**
+     * Fetch a blob to a file asynchronously. Resumed and segmented downloads run on a separate thread
+     * @param containerRef The container with the blob digest
+     * @param path The path of the file
+     * @return The future descriptor of the blob
+     */
+    public CompletableFuture<Descriptor> fetchBlobAsync(ContainerRef containerRef, Path path) {
+        return CompletableFuture.supplyAsync(() -> fetchBlob(containerRef, path), getAsyncExecutor());
+    }
+
+    /**
+     * Push a blob from a file asynchronously. The upload runs on a separate thread
+     * @param containerRef The container
+     * @param blob The blob file
+     * @return The future layer
+     */
+    public CompletableFuture<Layer> pushBlobAsync(ContainerRef containerRef, Path blob) {
+        return CompletableFuture.supplyAsync(() -> pushBlob(containerRef, blob), getAsyncExecutor());
+    }
+
+    /**
+     * Push an artifact asynchronously. The push runs on a separate thread
+     * @param containerRef The container
+     * @param paths The paths
+     * @return The future manifest
+     */
+    public CompletableFuture<Manifest> pushArtifactAsync(ContainerRef containerRef, LocalPath... paths) {
+        return CompletableFuture.supplyAsync(() -> pushArtifact(containerRef, paths), getAsyncExecutor());
+    }
+
+    /**
+     * Pull an artifact asynchronously. The pull runs on a separate thread
+     * @param containerRef The container
+     * @param path The path
+     * @param overwrite Overwrite existing files
+     * @return The future completed once all layers are pulled
+     */
+    public CompletableFuture<Void> pullArtifactAsync(ContainerRef containerRef, Path path, boolean overwrite) {
+        return CompletableFuture.runAsync(() -> pullArtifact(containerRef, path, overwrite), getAsyncExecutor());
+    }
+
+    /**
+     * Get the executor of asynchronous operations, the configured executor if any
+     * @return The executor
+     */
+    private Executor getAsyncExecutor() {
+        Executor executor = getExecutor();
+        return executor != null ? executor : ASYNC_EXECUTOR;
+    }
+
+    /**
+     * Send an asynchronous request, switching to the token flow and retrying once if challenged.
+     * The token request is blocking, so it runs on a separate thread instead of the HTTP client threads
+     * @param containerRef The container
+     * @param request The request to send, called again on retry
+     * @return The future response, failed if the response is an error
+     */
+    private <T> CompletableFuture<OrasHttpClient.ResponseWrapper<T>> sendAsync(
+            ContainerRef containerRef, Supplier<CompletableFuture<OrasHttpClient.ResponseWrapper<T>>> request) {
+        return request.get()
+                .thenCompose(response -> {
+                    logResponse(response);
+                    if (response.statusCode() != 401 && response.statusCode() != 403) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    return CompletableFuture.supplyAsync(
+                                    () -> switchTokenAuth(containerRef, response), getAsyncExecutor())
+                            .thenCompose(switched -> {
+                                if (!switched) {
+                                    return CompletableFuture.completedFuture(response);
+                                }
+                                if (response.response() instanceof InputStream is) {
+                                    closeQuietly(is);
+                                }
+                                return request.get().thenApply(retried -> {
+                                    logResponse(retried);
+                                    return retried;
+                                });
+                            });
+                })
+                .thenApply(response -> {
+                    handleError(response);
+                    return response;
+                });
+    }
+
+    /**
+     * Create the manifest of a manifest response
+     * @param response The response
+     * @return The manifest
+     */
+    private Manifest toManifest(OrasHttpClient.ResponseWrapper<String> response) {
+        String contentType = getContentType(response);
         if (!isManifestMediaType(contentType)) {
             throw new OrasException(
                     "Expected manifest but got index. Probably a multi-platform image instead of artifact");
         }
-        String size = response.headers().get(Const.CONTENT_LENGTH_HEADER.toLowerCase());
-        String digest = response.headers().get(Const.DOCKER_CONTENT_DIGEST_HEADER.toLowerCase());
-        ManifestDescriptor descriptor =
-                ManifestDescriptor.of(contentType, digest, size == null ? 0 : Long.parseLong(size));
-        return Manifest.fromJson(response.response()).withDescriptor(descriptor);
+        return Manifest.fromJson(response.response()).withDescriptor(toManifestDescriptor(response, contentType));
     }
 
-    @Override
-    public Index getIndex(ContainerRef containerRef) {
+    /**
+     * Resolve the manifest or index of the container with a single request
+     * @param containerRef The container
+     * @param requireDigest True if the registry must return the manifest digest
+     * @return The manifest or index with its descriptor
+     */
+    Descriptor resolve(ContainerRef containerRef, boolean requireDigest) {
         OrasHttpClient.ResponseWrapper<String> response = getManifestResponse(containerRef);
-        logResponse(response);
-        handleError(response);
-        String contentType = response.headers().get(Const.CONTENT_TYPE_HEADER.toLowerCase());
-        if (!isIndexMediaType(contentType)) {
-            throw new OrasException("Expected index but got %s".formatted(contentType));
+        String contentType = getContentType(response);
+        LOG.debug("Content type: {}", contentType);
+        if (!isManifestMediaType(contentType) && !isIndexMediaType(contentType)) {
+            throw new OrasException("Unsupported content type: %s".formatted(contentType));
+        }
+        if (requireDigest && !response.headers().containsKey(Const.DOCKER_CONTENT_DIGEST_HEADER.toLowerCase())) {
+            throw new OrasException("Manifest digest not found in headers");
+        }
+        ManifestDescriptor descriptor = toManifestDescriptor(response, contentType);
+        LOG.debug("Manifest digest: {}", descriptor.getDigest());
+        if (isManifestMediaType(contentType)) {
+            return Manifest.fromJson(response.response()).withDescriptor(descriptor);
         }
-        String size = response.headers().get(Const.CONTENT_LENGTH_HEADER.toLowerCase());
-        String digest = response.headers().get(Const.DOCKER_CONTENT_DIGEST_HEADER.toLowerCase());
-        ManifestDescriptor descriptor =
-                ManifestDescriptor.of(contentType, digest, size == null ? 0 : Long.parseLong(size));
         return Index.fromJson(response.response()).withDescriptor(descriptor);
     }
 
     /**
-     * Get a manifest response
+     * Get a manifest response. The body, content type, digest and size are all taken from this single GET request
      * @param containerRef The container
      * @return The response
      */
     private OrasHttpClient.ResponseWrapper<String> getManifestResponse(ContainerRef containerRef) {
         URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getManifestsPath()));
         OrasHttpClient.ResponseWrapper<String> response =
-                client.head(uri, Map.of(Const.ACCEPT_HEADER, Const.MANIFEST_ACCEPT_TYPE));
+                client.get(uri, Map.of(Const.ACCEPT_HEADER, Const.MANIFEST_ACCEPT_TYPE));
         logResponse(response);
 
         // Switch to bearer auth if needed and retry first request
         if (switchTokenAuth(containerRef, response)) {
-            response = client.head(uri, Map.of(Const.ACCEPT_HEADER, Const.MANIFEST_ACCEPT_TYPE));
+            response = client.get(uri, Map.of(Const.ACCEPT_HEADER, Const.MANIFEST_ACCEPT_TYPE));
             logResponse(response);
         }
         handleError(response);
-        return client.get(uri, Map.of("Accept", Const.MANIFEST_ACCEPT_TYPE));
+        return response;
     }
 
-    private byte[] ensureDigest(ContainerRef ref, byte[] data) {
-        if (ref.getDigest() == null) {
-            throw new OrasException("Missing digest");
-        }
-        SupportedAlgorithm algorithm = SupportedAlgorithm.fromDigest(ref.getDigest());
-        String dataDigest = algorithm.digest(data);
-        if (!ref.getDigest().equals(dataDigest)) {
-            throw new OrasException("Digest mismatch: %s != %s".formatted(ref.getTag(), dataDigest));
+    /**
+     * Get the content type of a manifest response
+     * @param response The response
+     * @return The content type
+     */
+    private String getContentType(OrasHttpClient.ResponseWrapper<String> response) {
+        String contentType = response.headers().get(Const.CONTENT_TYPE_HEADER.toLowerCase());
+        if (contentType == null) {
+            throw new OrasException("Content type not found in headers");
         }
-        return data;
+        return contentType;
+    }
+
+    /**
+     * Create the descriptor of a manifest response. Size falls back to the body length
+     * @param response The response
+     * @param contentType The content type
+     * @return The descriptor
+     */
+    private ManifestDescriptor toManifestDescriptor(
+            OrasHttpClient.ResponseWrapper<String> response, String contentType) {
+        String size = response.headers().get(Const.CONTENT_LENGTH_HEADER.toLowerCase());
+        String digest = response.headers().get(Const.DOCKER_CONTENT_DIGEST_HEADER.toLowerCase());
+        return ManifestDescriptor.of(
+                contentType,
+                digest,
+                size == null ? response.response().getBytes(StandardCharsets.UTF_8).length : Long.parseLong(size));
     }
 
     /**
      * Switch the current authentication to token auth
      * @param response The response
      */
-    private boolean switchTokenAuth(ContainerRef containerRef, OrasHttpClient.ResponseWrapper<String> response) {
-        if (response.statusCode() == 401 && !(authProvider instanceof BearerTokenProvider)) {
-            LOG.debug("Requesting token with token flow");
-            setAuthProvider(new BearerTokenProvider(authProvider).refreshToken(containerRef, client, response));
+    private boolean switchTokenAuth(ContainerRef containerRef, OrasHttpClient.ResponseWrapper<?> response) {
+        AuthProvider current = authProvider;
+        if (response.statusCode() == 401 && !(current instanceof BearerTokenProvider)) {
+            BearerTokenProvider started = switchToTokenAuth(containerRef, response);
+            if (started != null) {
+                LOG.debug("Token flow already started by another request");
+                started.ensureToken(containerRef, client, response);
+            }
             return true;
         }
-        // Need token refresh (expired or wrong scope)
+        // Need token refresh (expired or wrong scope), unless another request already got the token of the scope
         if ((response.statusCode() == 401 || response.statusCode() == 403)
-                && authProvider instanceof BearerTokenProvider) {
+                && current instanceof BearerTokenProvider bearerTokenProvider) {
             LOG.debug("Requesting new token with username password flow");
-            setAuthProvider(((BearerTokenProvider) authProvider).refreshToken(containerRef, client, response));
+            bearerTokenProvider.ensureToken(containerRef, client, response);
             return true;
         }
         return false;
     }
 
+    /**
+     * Switch to the token flow only once. Requests challenged at the same time wait for the first token
+     * and are retried with it instead of requesting their own
+     * @param containerRef The container reference
+     * @param response The challenge response
+     * @return The provider if the token flow was already started by another request, null otherwise
+     */
+    private synchronized @Nullable BearerTokenProvider switchToTokenAuth(
+            ContainerRef containerRef, OrasHttpClient.ResponseWrapper<?> response) {
+        if (authProvider instanceof BearerTokenProvider bearerTokenProvider) {
+            return bearerTokenProvider;
+        }
+        LOG.debug("Requesting token with token flow");
+        setAuthProvider(new BearerTokenProvider(authProvider).refreshToken(containerRef, client, response));
+        return null;
+    }
+
     /**
      * Handle an error response
      * @param responseWrapper The response
@@ -654,6 +1963,17 @@ public final class Registry extends OCI<ContainerRef> {
                 LOG.debug("Response: {}", responseWrapper.response());
                 throw new OrasException((OrasHttpClient.ResponseWrapper<String>) responseWrapper);
             }
+            // Read the error body of streamed responses
+            if (responseWrapper.response() instanceof InputStream is) {
+                try (is) {
+                    String body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+                    LOG.debug("Response: {}", body);
+                    throw new OrasException(new OrasHttpClient.ResponseWrapper<>(
+                            body, responseWrapper.statusCode(), responseWrapper.headers()));
+                } catch (IOException e) {
+                    LOG.debug("Failed to read error response", e);
+                }
+            }
             throw new OrasException(new OrasHttpClient.ResponseWrapper<>("", responseWrapper.statusCode(), Map.of()));
         }
     }
@@ -701,49 +2021,24 @@ public final class Registry extends OCI<ContainerRef> {
     }
 
     /**
-     * Get the content type of the container
-     * @param containerRef The container
-     * @return The content type
-     */
-    String getContentType(ContainerRef containerRef) {
-        return getHeaders(containerRef).get(Const.CONTENT_TYPE_HEADER.toLowerCase());
-    }
-
-    /**
-     * Execute a head request on the manifest URL and return the headers
-     * @param containerRef The container
-     * @return The headers
-     */
-    Map<String, String> getHeaders(ContainerRef containerRef) {
-        URI uri = URI.create("%s://%s".formatted(getScheme(), containerRef.getManifestsPath()));
-        OrasHttpClient.ResponseWrapper<String> response =
-                client.head(uri, Map.of(Const.ACCEPT_HEADER, Const.MANIFEST_ACCEPT_TYPE));
-        logResponse(response);
-
-        // Switch to bearer auth if needed and retry first request
-        if (switchTokenAuth(containerRef, response)) {
-            response = client.head(uri, Map.of(Const.ACCEPT_HEADER, Const.MANIFEST_ACCEPT_TYPE));
-            logResponse(response);
-        }
-        handleError(response);
-        return response.headers();
-    }
-
-    /**
-     * Collect layers from the container
+     * Collect layers from the resolved manifest or index of the container
      * @param containerRef The container
+     * @param resolved The resolved manifest or index
      * @param includeAll Include all layers or only the ones with title annotation
      * @return The layers
      */
-    List<Layer> collectLayers(ContainerRef containerRef, String contentType, boolean includeAll) {
+    List<Layer> collectLayers(ContainerRef containerRef, Descriptor resolved, boolean includeAll) {
         List<Layer> layers = new LinkedList<>();
-        if (isManifestMediaType(contentType)) {
-            return getManifest(containerRef).getLayers();
+        if (resolved instanceof Manifest manifest) {
+            return manifest.getLayers();
         }
-        Index index = getIndex(containerRef);
+        Index index = (Index) resolved;
+        List<Callable<List<Layer>>> tasks = new ArrayList<>();
         for (ManifestDescriptor manifestDescriptor : index.getManifests()) {
-            List<Layer> manifestLayers = getManifest(containerRef.withDigest(manifestDescriptor.getDigest()))
-                    .getLayers();
+            tasks.add(() -> getManifest(containerRef.withDigest(manifestDescriptor.getDigest()))
+                    .getLayers());
+        }
+        for (List<Layer> manifestLayers : executeAll(tasks)) {
             for (Layer manifestLayer : manifestLayers) {
                 if (manifestLayer.getAnnotations().isEmpty()
                         || !manifestLayer.getAnnotations().containsKey(Const.ANNOTATION_TITLE)) {
@@ -835,6 +2130,120 @@ public final class Registry extends OCI<ContainerRef> {
             return this;
         }
 
+        /**
+         * Set the maximum number of layers or manifests pushed or pulled concurrently
+         * @param parallelism The parallelism. 1 means sequential
+         * @return The builder
+         */
+        public Builder withParallelism(int parallelism) {
+            registry.setParallelism(parallelism);
+            return this;
+        }
+
+        /**
+         * Set the timeout to establish a connection
+         * @param connectTimeout The timeout in seconds
+         * @return The builder
+         */
+        public Builder withConnectTimeout(int connectTimeout) {
+            registry.setConnectTimeout(connectTimeout);
+            return this;
+        }
+
+        /**
+         * Set the timeout to receive the response headers of each request, separate from the connect timeout.
+         * Large blob downloads are not limited by this timeout once the response started
+         * @param requestTimeout The timeout in seconds
+         * @return The builder
+         */
+        public Builder withRequestTimeout(int requestTimeout) {
+            registry.setRequestTimeout(requestTimeout);
+            return this;
+        }
+
+        /**
+         * Set the preferred HTTP version. HTTP/1.1 opens a pool of connections per host while HTTP/2 multiplexes
+         * concurrent requests on a single connection. Idle connections are kept alive by the JDK HTTP client
+         * according to the {@code jdk.httpclient.keepalive.timeout} and {@code jdk.httpclient.connectionPoolSize}
+         * system properties
+         * @param httpVersion The HTTP version
+         * @return The builder
+         */
+        public Builder withHttpVersion(HttpClient.Version httpVersion) {
+            registry.setHttpVersion(httpVersion);
+            return this;
+        }
+
+        /**
+         * Set the retry policy of transient failures. Only GET and HEAD requests are retried, blob uploads
+         * that can be read again are restarted from a new upload session
+         * @param retryPolicy The retry policy, {@link RetryPolicy#none()} to disable retries
+         * @return The builder
+         */
+        public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+            registry.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
+        /**
+         * Set the rate limiter of requests per registry host. By default requests are not limited until the
+         * registry answers with 429 or RateLimit headers, then the rate adapts to stay within its limits
+         * @param rateLimiter The rate limiter, {@link RateLimiter#none()} to disable rate limiting
+         * @return The builder
+         */
+        public Builder withRateLimiter(RateLimiter rateLimiter) {
+            registry.setRateLimiter(rateLimiter);
+            return this;
+        }
+
+        /**
+         * Set the circuit breaker of requests per registry host. By default the breaker of a host opens after
+         * 5 consecutive connection failures or 502, 503 and 504 responses, and requests to the host fail fast
+         * for 30 seconds instead of waiting for the connect timeout
+         * @param circuitBreaker The circuit breaker, {@link CircuitBreaker#none()} to disable it
+         * @return The builder
+         */
+        public Builder withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            registry.setCircuitBreaker(circuitBreaker);
+            return this;
+        }
+
+        /**
+         * Set the executor of the HTTP client, of concurrent transfers and of asynchronous operations.
+         * Nested transfers wait for each other, so the executor must not bound its number of threads.
+         * For example {@code Executors.newVirtualThreadPerTaskExecutor()} on Java 21+ or a cached thread pool
+         * @param executor The executor
+         * @return The builder
+         */
+        public Builder withExecutor(Executor executor) {
+            registry.setExecutor(executor);
+            return this;
+        }
+
+        /**
+         * Enable chunked blob upload with the given chunk size. Blobs are otherwise streamed in a single request,
+         * except streams of unknown digest larger than {@link Const#DEFAULT_CHUNK_SIZE}.
+         * Larger chunks mean fewer requests but more memory per concurrent upload. The chunk size is increased to
+         * the OCI-Chunk-Min-Length of the registry if larger
+         * @param chunkSize The chunk size in bytes
+         * @return The builder
+         */
+        public Builder withChunkSize(int chunkSize) {
+            registry.setChunkSize(chunkSize);
+            return this;
+        }
+
+        /**
+         * Download large blobs to file with concurrent range requests. Only blobs of at least two segments of
+         * {@link Const#MIN_SEGMENT_SIZE} bytes are split, and only if the registry accepts byte ranges
+         * @param downloadSegments The maximum number of segments. 1 disables segmented download
+         * @return The builder
+         */
+        public Builder withDownloadSegments(int downloadSegments) {
+            registry.setDownloadSegments(downloadSegments);
+            return this;
+        }
+
         /**
          * Return a new builder
          * @return The builder
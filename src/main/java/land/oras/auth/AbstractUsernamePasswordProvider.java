@@ -38,6 +38,11 @@ public abstract sealed class AbstractUsernamePasswordProvider implements AuthPro
      */
     private final String password;
 
+    /**
+     * The Basic authentication header, encoded once
+     */
+    private final String authHeader;
+
     /**
      * Create a new username and password provider
      * @param username The username
@@ -46,6 +51,8 @@ public abstract sealed class AbstractUsernamePasswordProvider implements AuthPro
     public AbstractUsernamePasswordProvider(String username, String password) {
         this.username = username;
         this.password = password;
+        this.authHeader =
+                "Basic " + java.util.Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
     }
 
     /**
@@ -67,6 +74,6 @@ public abstract sealed class AbstractUsernamePasswordProvider implements AuthPro
     @Override
     @NonNull
     public String getAuthHeader(ContainerRef registry) {
-        return "Basic " + java.util.Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
+        return authHeader;
     }
 }
@@ -20,10 +20,17 @@
 
 package land.oras.auth;
 
+import com.google.gson.annotations.SerializedName;
 import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -55,9 +62,29 @@ public final class BearerTokenProvider implements AuthProvider {
     private static final Logger LOG = LoggerFactory.getLogger(BearerTokenProvider.class);
 
     /**
-     * The refreshed token
+     * Default lifetime of a token without expires_in as defined by the token specification
      */
-    private @Nullable TokenResponse token;
+    private static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofSeconds(60);
+
+    /**
+     * Tokens are refreshed this long before they expire, or after 80% of their lifetime for short tokens
+     */
+    private static final Duration REFRESH_MARGIN = Duration.ofSeconds(30);
+
+    /**
+     * The last refreshed token
+     */
+    private volatile @Nullable TokenResponse token;
+
+    /**
+     * The cached tokens by registry, service and scope. Expired tokens are evicted when a token is stored
+     */
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * The token requests in flight by registry, service and scope
+     */
+    private final Map<String, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
 
     /**
      * The provider for username and password in case of refresh token done
@@ -80,7 +107,54 @@ public final class BearerTokenProvider implements AuthProvider {
      * @return The token
      */
     public BearerTokenProvider refreshToken(
-            ContainerRef containerRef, OrasHttpClient client, OrasHttpClient.ResponseWrapper<String> response) {
+            ContainerRef containerRef, OrasHttpClient client, OrasHttpClient.ResponseWrapper<?> response) {
+        fetchToken(parseChallenge(containerRef, client, response));
+        return this;
+    }
+
+    /**
+     * Retrieve a token only if none is cached for the scope of the challenge, the cached one must be refreshed
+     * or the registry rejected it. The cached token is rejected when the challenged request was sent after it was
+     * retrieved, or when the registry reports it as invalid.
+     * Used when the challenged request may have been sent before another request retrieved the token, so that
+     * a burst of challenges results in a single token request
+     * @param response The response
+     * @param client The original client
+     * @param containerRef The container reference
+     * @return The token
+     */
+    public BearerTokenProvider ensureToken(
+            ContainerRef containerRef, OrasHttpClient client, OrasHttpClient.ResponseWrapper<?> response) {
+        TokenRequest request = parseChallenge(containerRef, client, response);
+        CachedToken cachedToken = tokens.get(request.key());
+        if (cachedToken == null
+                || "invalid_token".equals(request.error())
+                || !cachedToken.storedAt().isAfter(response.sentAt())
+                || Instant.now().isAfter(cachedToken.refreshAt())) {
+            try {
+                fetchToken(request);
+            } catch (OrasException e) {
+                // Never retry with the rejected token
+                if (cachedToken != null) {
+                    tokens.remove(request.key(), cachedToken);
+                }
+                throw e;
+            }
+        } else {
+            LOG.debug("Token already retrieved for scope {}", request.scope());
+        }
+        return this;
+    }
+
+    /**
+     * Parse the WWW-Authenticate challenge of a response
+     * @param containerRef The container reference
+     * @param client The original client
+     * @param response The response
+     * @return The token request
+     */
+    private TokenRequest parseChallenge(
+            ContainerRef containerRef, OrasHttpClient client, OrasHttpClient.ResponseWrapper<?> response) {
 
         String wwwAuthHeader = response.headers().getOrDefault(Const.WWW_AUTHENTICATE_HEADER.toLowerCase(), "");
         LOG.debug("WWW-Authenticate header: {}", wwwAuthHeader);
@@ -101,15 +175,62 @@ public final class BearerTokenProvider implements AuthProvider {
 
         LOG.debug("WWW-Authenticate header: realm={}, service={}, scope={}, error={}", realm, service, scope, error);
 
-        URI uri = URI.create(realm + "?scope=" + scope + "&service=" + service);
+        return new TokenRequest(containerRef, client, realm, service, scope, error);
+    }
+
+    /**
+     * Request a token from the realm and cache it.
+     * Only one request is made per scope at a time, concurrent callers wait for its result
+     * @param request The token request
+     * @return The cached token
+     */
+    private CachedToken fetchToken(TokenRequest request) {
+        CompletableFuture<CachedToken> future = new CompletableFuture<>();
+        CompletableFuture<CachedToken> existing = inFlight.putIfAbsent(request.key(), future);
+        if (existing != null) {
+            LOG.debug("Waiting for token request in flight for scope {}", request.scope());
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof OrasException orasException) {
+                    throw orasException;
+                }
+                throw new OrasException("Failed to request token", e.getCause());
+            }
+        }
+        try {
+            CachedToken cachedToken = requestToken(request);
+            future.complete(cachedToken);
+            return cachedToken;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(request.key(), future);
+        }
+    }
+
+    /**
+     * Perform the token request
+     * @param request The token request
+     * @return The cached token
+     */
+    private CachedToken requestToken(TokenRequest request) {
+
+        // Several scopes are requested at once when mounting blobs across repositories
+        String scopes =
+                Arrays.stream(request.scope().split(" ")).map(s -> "scope=" + s).collect(Collectors.joining("&"));
+        URI uri = URI.create(request.realm() + "?" + scopes + "&service=" + request.service());
 
         // Perform the request to get the token
         Map<String, String> headers = new HashMap<>();
-        String authHeader = provider.getAuthHeader(containerRef);
+        String authHeader = provider.getAuthHeader(request.containerRef());
         if (authHeader != null) {
             headers.put(Const.AUTHORIZATION_HEADER, authHeader);
         }
-        OrasHttpClient.ResponseWrapper<String> responseWrapper = client.get(uri, headers);
+        Instant requestedAt = Instant.now();
+        OrasHttpClient.ResponseWrapper<String> responseWrapper =
+                request.client().get(uri, headers);
 
         // Log the response
         LOG.debug(
@@ -129,8 +250,61 @@ public final class BearerTokenProvider implements AuthProvider {
                                         ? "<redacted" // Replace value with ****
                                         : entry.getValue())));
 
-        this.token = JsonUtils.fromJson(responseWrapper.response(), TokenResponse.class);
-        return this;
+        // Never parse nor cache the body of a failed token request
+        if (responseWrapper.statusCode() >= 400) {
+            LOG.debug("Failed to request token for scope {}", request.scope());
+            throw new OrasException(responseWrapper);
+        }
+
+        TokenResponse tokenResponse = JsonUtils.fromJson(responseWrapper.response(), TokenResponse.class);
+        Duration lifetime = lifetime(tokenResponse);
+        Instant expiresAt = expiresAt(tokenResponse, lifetime, requestedAt);
+        Instant now = Instant.now();
+        CachedToken cachedToken =
+                new CachedToken(request, tokenResponse, refreshAt(expiresAt, lifetime), expiresAt, now);
+        tokens.values().removeIf(expired -> expired.expiresAt().isBefore(now));
+        tokens.put(request.key(), cachedToken);
+        this.token = tokenResponse;
+        return cachedToken;
+    }
+
+    /**
+     * Get the lifetime of a token from its expires_in
+     * @param tokenResponse The token
+     * @return The lifetime
+     */
+    private static Duration lifetime(TokenResponse tokenResponse) {
+        return tokenResponse.expire_in() != null && tokenResponse.expire_in() > 0
+                ? Duration.ofSeconds(tokenResponse.expire_in())
+                : DEFAULT_TOKEN_LIFETIME;
+    }
+
+    /**
+     * Compute when a token expires from its issued_at and lifetime.
+     * The local request time is used when the issued_at is missing or not consistent with the local clock
+     * @param tokenResponse The token
+     * @param lifetime The lifetime of the token
+     * @param requestedAt When the token was requested
+     * @return The instant the token expires
+     */
+    private static Instant expiresAt(TokenResponse tokenResponse, Duration lifetime, Instant requestedAt) {
+        Instant issuedAt =
+                tokenResponse.issued_at() != null ? tokenResponse.issued_at().toInstant() : requestedAt;
+        if (issuedAt.isAfter(Instant.now()) || issuedAt.plus(lifetime).isBefore(requestedAt)) {
+            issuedAt = requestedAt;
+        }
+        return issuedAt.plus(lifetime);
+    }
+
+    /**
+     * Compute when a token must be refreshed, some time before it expires
+     * @param expiresAt The instant the token expires
+     * @param lifetime The lifetime of the token
+     * @return The instant from which the token must be refreshed
+     */
+    private static Instant refreshAt(Instant expiresAt, Duration lifetime) {
+        Duration margin = lifetime.dividedBy(5).compareTo(REFRESH_MARGIN) < 0 ? lifetime.dividedBy(5) : REFRESH_MARGIN;
+        return expiresAt.minus(margin);
     }
 
     /**
@@ -143,12 +317,102 @@ public final class BearerTokenProvider implements AuthProvider {
 
     @Override
     public @Nullable String getAuthHeader(ContainerRef registry) {
-        if (token == null) {
-            return null;
+        CachedToken cachedToken = findToken(registry);
+        if (cachedToken == null) {
+            // Fallback to the last token, the registry will challenge again for another scope
+            return token != null ? "Bearer " + token.token : null;
         }
-        return "Bearer " + token.token;
+
+        // Refresh before the token expires
+        if (Instant.now().isAfter(cachedToken.refreshAt())) {
+            try {
+                LOG.debug("Refreshing token for scope {}", cachedToken.request().scope());
+                cachedToken = fetchToken(cachedToken.request());
+            } catch (OrasException e) {
+                LOG.debug(
+                        "Failed to refresh token for scope {}",
+                        cachedToken.request().scope(),
+                        e);
+            }
+        }
+        return "Bearer " + cachedToken.token().token();
+    }
+
+    /**
+     * Find the cached token for the repository of the request.
+     * The token with the most actions on the repository is preferred so that pushes don't use a pull only token.
+     * @param registry The container reference of the request
+     * @return The token or null if no token covers the repository
+     */
+    private @Nullable CachedToken findToken(ContainerRef registry) {
+        String repository = registry.getFullRepository();
+        CachedToken found = null;
+        int foundActions = 0;
+        for (CachedToken cachedToken : tokens.values()) {
+            if (!cachedToken.request().containerRef().getApiRegistry().equals(registry.getApiRegistry())) {
+                continue;
+            }
+            int actions = cachedToken.request().actions(repository);
+            if (actions > foundActions) {
+                found = cachedToken;
+                foundActions = actions;
+            }
+        }
+        return found;
     }
 
+    /**
+     * A token request as challenged by the registry
+     * @param containerRef The container reference used to get credentials
+     * @param client The client used to request the token
+     * @param realm The realm
+     * @param service The service
+     * @param scope The scope, with several scopes separated by spaces
+     * @param error The error of the challenge if any
+     */
+    private record TokenRequest(
+            ContainerRef containerRef,
+            OrasHttpClient client,
+            String realm,
+            String service,
+            String scope,
+            @Nullable String error) {
+
+        /**
+         * Get the cache key of the request
+         * @return The key
+         */
+        private String key() {
+            return "%s %s %s".formatted(containerRef.getApiRegistry(), service, scope);
+        }
+
+        /**
+         * Count the actions granted by the scope on a repository
+         * @param repository The repository
+         * @return The number of actions, 0 if the repository is not in the scope
+         */
+        private int actions(String repository) {
+            String prefix = "repository:%s:".formatted(repository);
+            for (String entry : scope.split(" ")) {
+                if (entry.startsWith(prefix)) {
+                    return entry.substring(prefix.length()).split(",").length;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * A cached token
+     * @param request The request to refresh the token
+     * @param token The token
+     * @param refreshAt When the token must be refreshed
+     * @param expiresAt When the token expires
+     * @param storedAt When the token was cached
+     */
+    private record CachedToken(
+            TokenRequest request, TokenResponse token, Instant refreshAt, Instant expiresAt, Instant storedAt) {}
+
     /**
      * The token response
      * @param token The token
@@ -157,5 +421,9 @@ public final class BearerTokenProvider implements AuthProvider {
      * @param issued_at The issued at
      */
     @NullMarked
-    public record TokenResponse(String token, String access_token, Integer expire_in, ZonedDateTime issued_at) {}
+    public record TokenResponse(
+            String token,
+            String access_token,
+            @SerializedName(value = "expires_in", alternate = "expire_in") @Nullable Integer expire_in,
+            @Nullable ZonedDateTime issued_at) {}
 }
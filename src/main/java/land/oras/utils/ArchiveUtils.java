@@ -38,11 +38,10 @@ import land.oras.exception.OrasException;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
-import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
 import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -205,7 +204,50 @@ public final class ArchiveUtils {
      * @return The path to the tar.gz file or the tar.zstd file
      */
     public static LocalPath uncompress(InputStream is, String mediaType) {
-        return SupportedCompression.fromMediaType(mediaType).uncompress(is);
+        return uncompress(is, mediaType, null);
+    }
+
+    /**
+     * Extract a compressed file to a temporary tar, verifying the digest of the tar while it's written.
+     * The compressed stream is read to its end, even past the end of the compressed data, so that streams
+     * verifying their content at the end are verified
+     * @param is The compressed input stream
+     * @param mediaType The media type of the stream to select the uncompression method
+     * @param expectedDigest The digest of the uncompressed tar or null to skip the verification
+     * @return The path to the tar file
+     */
+    public static LocalPath uncompress(InputStream is, String mediaType, @Nullable String expectedDigest) {
+        SupportedCompression compression = SupportedCompression.fromMediaType(mediaType);
+        LOG.trace("Uncompressing {} archive", mediaType);
+        Path tarFile = createTempTar();
+        try {
+            try (InputStream uncompressed = compression.uncompress(is);
+                    OutputStream fos = Files.newOutputStream(tarFile);
+                    BufferedOutputStream bos = new BufferedOutputStream(fos)) {
+                if (expectedDigest == null) {
+                    uncompressed.transferTo(bos);
+                } else {
+                    DigestingInputStream digesting =
+                            new DigestingInputStream(uncompressed, SupportedAlgorithm.fromDigest(expectedDigest));
+                    digesting.transferTo(bos);
+                    digesting.verify(expectedDigest);
+                }
+
+                // The uncompression stops at the end of the compressed data
+                is.transferTo(OutputStream.nullOutputStream());
+            }
+            return LocalPath.of(tarFile, Const.DEFAULT_BLOB_MEDIA_TYPE);
+        } catch (IOException | OrasException e) {
+            try {
+                Files.deleteIfExists(tarFile);
+            } catch (IOException ex) {
+                LOG.debug("Failed to delete {}", tarFile, ex);
+            }
+            if (e instanceof OrasException oe) {
+                throw oe;
+            }
+            throw new OrasException("Failed to uncompress %s archive".formatted(mediaType), e);
+        }
     }
 
     static LocalPath compressZstd(LocalPath tarFile) {
@@ -240,36 +282,6 @@ public final class ArchiveUtils {
         return LocalPath.of(tarGzFile, Const.DEFAULT_BLOB_DIR_MEDIA_TYPE);
     }
 
-    static LocalPath uncompressGzip(InputStream inputStream) {
-        LOG.trace("Uncompressing tar.gz file");
-        Path tarFile = createTempTar();
-        try (BufferedInputStream bis = new BufferedInputStream(inputStream);
-                GzipCompressorInputStream gzis = new GzipCompressorInputStream(bis);
-                OutputStream fos = Files.newOutputStream(tarFile);
-                BufferedOutputStream bos = new BufferedOutputStream(fos)) {
-
-            gzis.transferTo(bos);
-        } catch (IOException e) {
-            throw new OrasException("Failed to uncompress tar.gz file", e);
-        }
-        return LocalPath.of(tarFile, Const.DEFAULT_BLOB_MEDIA_TYPE);
-    }
-
-    static LocalPath uncompressZstd(InputStream inputStream) {
-        LOG.trace("Uncompressing zstd file");
-        Path tarFile = createTempTar();
-        try (BufferedInputStream bis = new BufferedInputStream(inputStream);
-                ZstdCompressorInputStream gzis = new ZstdCompressorInputStream(bis);
-                OutputStream fos = Files.newOutputStream(tarFile);
-                BufferedOutputStream bos = new BufferedOutputStream(fos)) {
-
-            gzis.transferTo(bos);
-        } catch (IOException e) {
-            throw new OrasException("Failed to uncompress tar.zstd file", e);
-        }
-        return LocalPath.of(tarFile, Const.DEFAULT_BLOB_MEDIA_TYPE);
-    }
-
     /**
      * Opposite of convertToPosixPermissions. Convert PosixFilePermissions to mode
      * @param permissions The permissions
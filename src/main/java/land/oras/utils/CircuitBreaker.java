@@ -0,0 +1,390 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import land.oras.exception.OrasException;
+import org.jspecify.annotations.NullMarked;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker of registry requests, keyed by registry host.
+ * After a number of consecutive failures of a host the breaker opens and requests to the host fail fast.
+ * Once the open duration elapsed, a single trial request is sent (half-open) and closes the breaker if it succeeds
+ */
+@NullMarked
+public final class CircuitBreaker {
+
+    /**
+     * The logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * Status codes of a registry that is down or overloaded
+     */
+    private static final Set<Integer> FAILURE_STATUS_CODES = Set.of(502, 503, 504);
+
+    /**
+     * The state of the breaker of a host
+     */
+    public enum State {
+
+        /**
+         * Requests are sent
+         */
+        CLOSED,
+
+        /**
+         * Requests fail fast
+         */
+        OPEN,
+
+        /**
+         * A trial request is sent, other requests fail fast
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The number of consecutive failures opening the breaker, 0 to disable the breaker
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * The duration requests fail fast before a trial request
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * The breaker of each host
+     */
+    private final Map<String, HostBreaker> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * The number of requests rejected while open
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * The number of times a breaker opened
+     */
+    private final AtomicLong opened = new AtomicLong();
+
+    /**
+     * Hidden constructor
+     */
+    private CircuitBreaker() {}
+
+    /**
+     * Set the failure threshold
+     * @param failureThreshold The number of consecutive failures
+     */
+    private void setFailureThreshold(int failureThreshold) {
+        if (failureThreshold < 0) {
+            throw new OrasException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Set the open duration
+     * @param openDuration The duration
+     */
+    private void setOpenDuration(Duration openDuration) {
+        if (openDuration.isNegative()) {
+            throw new OrasException("Open duration must be positive");
+        }
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Get the default circuit breaker
+     * @return The default circuit breaker
+     */
+    public static CircuitBreaker defaults() {
+        return new CircuitBreaker();
+    }
+
+    /**
+     * Get a circuit breaker that never opens
+     * @return The circuit breaker
+     */
+    public static CircuitBreaker none() {
+        return Builder.builder().withFailureThreshold(0).build();
+    }
+
+    /**
+     * Get the number of consecutive failures opening the breaker
+     * @return The failure threshold, 0 if disabled
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Get the duration requests fail fast before a trial request
+     * @return The open duration
+     */
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Check if the breaker can reject requests
+     * @return True if enabled
+     */
+    public boolean isEnabled() {
+        return failureThreshold > 0;
+    }
+
+    /**
+     * Get the state of the breaker of a host
+     * @param host The registry host
+     * @return The state
+     */
+    public State getState(String host) {
+        HostBreaker breaker = hosts.get(host);
+        return breaker != null ? breaker.getState() : State.CLOSED;
+    }
+
+    /**
+     * Get the number of requests rejected because a breaker was open
+     * @return The number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Get the number of times a breaker opened
+     * @return The number of times a breaker opened
+     */
+    public long getOpenedCount() {
+        return opened.get();
+    }
+
+    /**
+     * Check that a request to the host can be sent. Each call must be followed by a call to
+     * {@link #onSuccess(String)}, {@link #onFailure(String)} or {@link #onCancel(String)}
+     * @param host The registry host
+     * @throws OrasException If the breaker of the host is open
+     */
+    public void acquire(String host) {
+        HostBreaker breaker = hosts.computeIfAbsent(host, h -> new HostBreaker());
+        if (!breaker.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new OrasException("Circuit breaker open for %s, failing fast".formatted(host));
+        }
+    }
+
+    /**
+     * Check if a response is a failure of the host
+     * @param statusCode The status code
+     * @return True if the status code counts as failure
+     */
+    public boolean isFailure(int statusCode) {
+        return FAILURE_STATUS_CODES.contains(statusCode);
+    }
+
+    /**
+     * Record a successful request to the host
+     * @param host The registry host
+     */
+    public void onSuccess(String host) {
+        HostBreaker breaker = hosts.get(host);
+        if (breaker != null) {
+            breaker.onSuccess(host);
+        }
+    }
+
+    /**
+     * Record a failed request to the host
+     * @param host The registry host
+     */
+    public void onFailure(String host) {
+        HostBreaker breaker = hosts.get(host);
+        if (breaker != null) {
+            breaker.onFailure(host);
+        }
+    }
+
+    /**
+     * Record a request to the host that ended without telling if the host is healthy, for example when interrupted
+     * @param host The registry host
+     */
+    public void onCancel(String host) {
+        HostBreaker breaker = hosts.get(host);
+        if (breaker != null) {
+            breaker.onCancel();
+        }
+    }
+
+    /**
+     * The state of a host
+     */
+    private final class HostBreaker {
+
+        /**
+         * The state
+         */
+        private State state = State.CLOSED;
+
+        /**
+         * The number of consecutive failures
+         */
+        private int failures;
+
+        /**
+         * The time in nanoseconds at which the breaker opened
+         */
+        private long openedAt;
+
+        /**
+         * Whether the trial request of the half-open state is in flight
+         */
+        private boolean trial;
+
+        /**
+         * Get the state
+         * @return The state
+         */
+        private synchronized State getState() {
+            return state;
+        }
+
+        /**
+         * Check if a request can be sent, moving to half-open once the open duration elapsed
+         * @return True if the request can be sent
+         */
+        private synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trial = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trial) {
+                    return false;
+                }
+                trial = true;
+            }
+            return true;
+        }
+
+        /**
+         * Record a successful request
+         * @param host The registry host
+         */
+        private synchronized void onSuccess(String host) {
+            if (state != State.CLOSED) {
+                LOG.info("Circuit breaker closed for {}", host);
+            }
+            state = State.CLOSED;
+            failures = 0;
+            trial = false;
+        }
+
+        /**
+         * Allow a new trial request if the breaker is half-open
+         */
+        private synchronized void onCancel() {
+            trial = false;
+        }
+
+        /**
+         * Record a failed request
+         * @param host The registry host
+         */
+        private synchronized void onFailure(String host) {
+            failures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+                LOG.warn("Circuit breaker opened for {} after {} consecutive failures", host, failures);
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                trial = false;
+                opened.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Builder for the circuit breaker
+     */
+    public static class Builder {
+
+        private final CircuitBreaker breaker = new CircuitBreaker();
+
+        /**
+         * Hidden constructor
+         */
+        private Builder() {
+            // Hide constructor
+        }
+
+        /**
+         * Set the number of consecutive failures of a host opening its breaker.
+         * Failures are requests without response and 502, 503 or 504 responses
+         * @param failureThreshold The number of consecutive failures, 0 to disable the breaker
+         * @return The builder
+         */
+        public Builder withFailureThreshold(int failureThreshold) {
+            breaker.setFailureThreshold(failureThreshold);
+            return this;
+        }
+
+        /**
+         * Set the duration requests fail fast before a trial request is sent
+         * @param openDuration The duration
+         * @return The builder
+         */
+        public Builder withOpenDuration(Duration openDuration) {
+            breaker.setOpenDuration(openDuration);
+            return this;
+        }
+
+        /**
+         * Return a new builder
+         * @return The builder
+         */
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        /**
+         * Build the circuit breaker
+         * @return The circuit breaker
+         */
+        public CircuitBreaker build() {
+            CircuitBreaker built = new CircuitBreaker();
+            built.setFailureThreshold(breaker.failureThreshold);
+            built.setOpenDuration(breaker.openDuration);
+            return built;
+        }
+    }
+}
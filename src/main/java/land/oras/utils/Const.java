@@ -195,11 +195,47 @@ public final class Const {
      */
     public static final String OCI_SUBJECT_HEADER = "OCI-Subject";
 
+    /**
+     * OCI chunk min length header, the minimum chunk size of the registry for chunked uploads
+     */
+    public static final String OCI_CHUNK_MIN_LENGTH_HEADER = "OCI-Chunk-Min-Length";
+
     /**
      * Accept header
      */
     public static final String ACCEPT_HEADER = "Accept";
 
+    /**
+     * Content-Range header
+     */
+    public static final String CONTENT_RANGE_HEADER = "Content-Range";
+
+    /**
+     * Range header
+     */
+    public static final String RANGE_HEADER = "Range";
+
+    /**
+     * Size of the buffer of stream uploads. Streams of unknown digest larger than this size are uploaded in chunks
+     * of this size. Most registries require at least 5 MiB per chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * Minimum size of a segment for segmented blob download
+     */
+    public static final long MIN_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Accept-Ranges header
+     */
+    public static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+
+    /**
+     * Retry-After header
+     */
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+
     /**
      * Location header
      */
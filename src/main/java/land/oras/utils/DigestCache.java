@@ -0,0 +1,416 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import land.oras.exception.OrasException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in cache of file digests, keyed by file identity: path, size, modification time and file key (inode).
+ * Unchanged files are not hashed again, any change of the identity hashes the file again.
+ * Entries are held in memory with LRU eviction and can be persisted in a sidecar file shared across runs.
+ * Files modified within the last seconds are not cached, as a change within the timestamp granularity could
+ * not be detected. Tools that rewrite a file while keeping its size and modification time defeat the cache.
+ */
+@NullMarked
+public final class DigestCache {
+
+    /**
+     * The logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(DigestCache.class);
+
+    /**
+     * Files modified more recently are not cached
+     */
+    private static final Duration RACY_WINDOW = Duration.ofSeconds(2);
+
+    /**
+     * The enabled cache if any
+     */
+    private static volatile @Nullable DigestCache enabled;
+
+    /**
+     * The maximum number of entries
+     */
+    private int maxEntries = 1024;
+
+    /**
+     * The sidecar file persisting the entries, if any
+     */
+    private @Nullable Path store;
+
+    /**
+     * The entries in access order
+     */
+    private final Map<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * The number of entries appended to the store since it was compacted
+     */
+    private int appended;
+
+    /**
+     * The number of digests served from the cache
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of digests computed
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Hidden constructor
+     */
+    private DigestCache() {}
+
+    /**
+     * Set the maximum number of entries
+     * @param maxEntries The maximum number of entries
+     */
+    private void setMaxEntries(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new OrasException("Max entries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Set the sidecar file
+     * @param store The sidecar file
+     */
+    private void setStore(@Nullable Path store) {
+        this.store = store;
+    }
+
+    /**
+     * Use the cache for all file digests of {@link SupportedAlgorithm#digest(Path)}.
+     * Downloads are always verified with {@link SupportedAlgorithm#digestContent(Path)}
+     * @param cache The cache
+     */
+    public static void enable(DigestCache cache) {
+        enabled = cache;
+    }
+
+    /**
+     * Stop using a cache for file digests
+     */
+    public static void disable() {
+        enabled = null;
+    }
+
+    /**
+     * Get the enabled cache
+     * @return The cache or null if disabled
+     */
+    public static @Nullable DigestCache getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the number of entries
+     * @return The number of entries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of digests served from the cache
+     * @return The number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of digests computed because the file was not cached or changed
+     * @return The number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Remove all entries, including the persisted ones
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            compact();
+        }
+    }
+
+    /**
+     * Get the digest of a file from the cache, or compute and cache it
+     * @param prefix The algorithm prefix
+     * @param path The file
+     * @param compute Computes the digest
+     * @return The digest
+     */
+    String digest(String prefix, Path path, Supplier<String> compute) {
+        Key before = key(prefix, path);
+        if (before == null) {
+            return compute.get();
+        }
+        String cached;
+        synchronized (entries) {
+            cached = entries.get(before);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        String digest = compute.get();
+
+        // Only cache if the file didn't change while hashing and can't change unnoticed
+        Key after = key(prefix, path);
+        long racyLimit = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - RACY_WINDOW.toMillis());
+        if (before.equals(after) && before.modified() < racyLimit) {
+            synchronized (entries) {
+                entries.put(before, digest);
+                append(new Entry(before, digest));
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Get the identity of a file
+     * @param prefix The algorithm prefix
+     * @param path The file
+     * @return The key or null if the attributes can't be read
+     */
+    private static @Nullable Key key(String prefix, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Key(
+                    prefix,
+                    path.toAbsolutePath().normalize().toString(),
+                    attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    String.valueOf(attributes.fileKey()));
+        } catch (IOException e) {
+            LOG.debug("Failed to read attributes of {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Load the entries of the sidecar file if it exists, keeping the most recent ones, then compact it
+     */
+    private void load() {
+        Path file = store;
+        if (file == null) {
+            return;
+        }
+        if (!Files.exists(file)) {
+            compact();
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Entry entry = JsonUtils.fromJson(line, Entry.class);
+                    entries.put(entry.key(), entry.digest());
+                } catch (RuntimeException e) {
+                    LOG.debug("Ignoring invalid digest cache entry: {}", line, e);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to load digest cache {}", file, e);
+        }
+        compact();
+    }
+
+    /**
+     * Append an entry to the sidecar file, compacting it once it holds more entries than the cache
+     * @param entry The entry
+     */
+    private void append(Entry entry) {
+        Path file = store;
+        if (file == null) {
+            return;
+        }
+        if (++appended > maxEntries) {
+            compact();
+            return;
+        }
+        try {
+            Files.writeString(
+                    file,
+                    JsonUtils.toJson(entry) + "\n",
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOG.warn("Failed to write digest cache {}", file, e);
+        }
+    }
+
+    /**
+     * Rewrite the sidecar file with the current entries
+     */
+    private void compact() {
+        Path file = store;
+        appended = 0;
+        if (file == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        entries.forEach((key, digest) -> lines.add(JsonUtils.toJson(new Entry(key, digest))));
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, ".digests-", ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Failed to write digest cache {}", file, e);
+        }
+    }
+
+    /**
+     * The identity of a file
+     * @param algorithm The algorithm prefix
+     * @param path The absolute path
+     * @param size The size
+     * @param modified The modification time in nanoseconds
+     * @param fileKey The file key, typically the device and inode
+     */
+    private record Key(String algorithm, String path, long size, long modified, String fileKey) {}
+
+    /**
+     * A persisted entry
+     * @param algorithm The algorithm prefix
+     * @param path The absolute path
+     * @param size The size
+     * @param modified The modification time in nanoseconds
+     * @param fileKey The file key
+     * @param digest The digest
+     */
+    private record Entry(String algorithm, String path, long size, long modified, String fileKey, String digest) {
+
+        /**
+         * Create an entry
+         * @param key The key
+         * @param digest The digest
+         */
+        private Entry(Key key, String digest) {
+            this(key.algorithm(), key.path(), key.size(), key.modified(), key.fileKey(), digest);
+        }
+
+        /**
+         * Get the key
+         * @return The key
+         */
+        private Key key() {
+            return new Key(algorithm, path, size, modified, fileKey);
+        }
+    }
+
+    /**
+     * Builder for the digest cache
+     */
+    public static class Builder {
+
+        private final DigestCache cache = new DigestCache();
+
+        /**
+         * Hidden constructor
+         */
+        private Builder() {
+            // Hide constructor
+        }
+
+        /**
+         * Set the maximum number of entries. The least recently used entries are evicted
+         * @param maxEntries The maximum number of entries
+         * @return The builder
+         */
+        public Builder withMaxEntries(int maxEntries) {
+            cache.setMaxEntries(maxEntries);
+            return this;
+        }
+
+        /**
+         * Persist the entries in a sidecar file, loaded when the cache is built
+         * @param store The sidecar file or null to keep the entries in memory only
+         * @return The builder
+         */
+        public Builder withStore(@Nullable Path store) {
+            cache.setStore(store);
+            return this;
+        }
+
+        /**
+         * Return a new builder
+         * @return The builder
+         */
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        /**
+         * Build the digest cache, loading the sidecar file if any
+         * @return The digest cache
+         */
+        public DigestCache build() {
+            DigestCache built = new DigestCache();
+            built.setMaxEntries(cache.maxEntries);
+            built.setStore(cache.store);
+            synchronized (built.entries) {
+                built.load();
+            }
+            return built;
+        }
+    }
+}
@@ -26,22 +26,46 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
-import java.security.Security;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
 import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import land.oras.exception.OrasException;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.jspecify.annotations.NullMarked;
 
 /**
- * Digest utilities
+ * Digest utilities.
+ * SHA-256 and SHA-512 use the JDK providers, which are intrinsified on most platforms. BouncyCastle is only used
+ * for the algorithms the JDK doesn't provide and is never registered as a global security provider.
+ * Digest instances are cloned from a prototype, avoiding a provider lookup on each call
  */
 @NullMarked
 final class DigestUtils {
 
     private static final HexFormat HEX_FORMAT = HexFormat.of();
 
-    static {
-        Security.addProvider(new BouncyCastleProvider());
+    /**
+     * Algorithms provided by BouncyCastle
+     */
+    private static final Set<String> BOUNCY_CASTLE_ALGORITHMS = Set.of("BLAKE3-256");
+
+    /**
+     * Prototype instances by algorithm
+     */
+    private static final Map<String, MessageDigest> PROTOTYPES = new ConcurrentHashMap<>();
+
+    /**
+     * BouncyCastle provider, only loaded when needed
+     */
+    private static final class BouncyCastle {
+
+        /**
+         * The provider
+         */
+        private static final Provider PROVIDER = new BouncyCastleProvider();
     }
 
     /**
@@ -50,25 +74,38 @@ final class DigestUtils {
     private DigestUtils() {}
 
     /**
-     * Calculate the digest of a file
+     * Calculate the digest of a file, or get it from the digest cache if enabled
      * @param algorithm The algorithm
      * @param prefix The prefix
      * @param path The path
      * @return The digest
      */
     static String digest(String algorithm, String prefix, Path path) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
-                long fileSize = channel.size();
-                long position = 0;
-                while (position < fileSize) {
-                    long remaining = fileSize - position;
-                    int chunkSize = (int) Math.min(Integer.MAX_VALUE, remaining);
-                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
-                    digest.update(buffer);
-                    position += chunkSize;
-                }
+        DigestCache cache = DigestCache.getEnabled();
+        if (cache != null) {
+            return cache.digest(prefix, path, () -> digestFile(algorithm, prefix, path));
+        }
+        return digestFile(algorithm, prefix, path);
+    }
+
+    /**
+     * Calculate the digest of a file, always reading its content
+     * @param algorithm The algorithm
+     * @param prefix The prefix
+     * @param path The path
+     * @return The digest
+     */
+    static String digestFile(String algorithm, String prefix, Path path) {
+        MessageDigest digest = newMessageDigest(algorithm);
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long remaining = fileSize - position;
+                int chunkSize = (int) Math.min(Integer.MAX_VALUE, remaining);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+                digest.update(buffer);
+                position += chunkSize;
             }
             byte[] hashBytes = digest.digest();
             return formatHex(prefix, hashBytes);
@@ -85,15 +122,10 @@ final class DigestUtils {
      * @return The digest
      */
     static String digest(String algorithm, String prefix, byte[] bytes) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            byte[] hashBytes = digest.digest(bytes);
+        byte[] hashBytes = newMessageDigest(algorithm).digest(bytes);
 
-            // Convert the byte array to hex
-            return formatHex(prefix, hashBytes);
-        } catch (Exception e) {
-            throw new OrasException("Failed to calculate digest", e);
-        }
+        // Convert the byte array to hex
+        return formatHex(prefix, hashBytes);
     }
 
     /**
@@ -104,8 +136,8 @@ final class DigestUtils {
      * @return The digest
      */
     static String digest(String algorithm, String prefix, InputStream input) {
+        MessageDigest digest = newMessageDigest(algorithm);
         try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
             byte[] buffer = new byte[8192];
             int bytesRead;
             while ((bytesRead = input.read(buffer)) != -1) {
@@ -118,6 +150,46 @@ final class DigestUtils {
         }
     }
 
+    /**
+     * Create a new message digest for incremental hashing
+     * @param algorithm The algorithm
+     * @return The message digest
+     */
+    static MessageDigest newMessageDigest(String algorithm) {
+        MessageDigest prototype = PROTOTYPES.computeIfAbsent(algorithm, DigestUtils::getInstance);
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return getInstance(algorithm);
+        }
+    }
+
+    /**
+     * Get a message digest from the provider of the algorithm
+     * @param algorithm The algorithm
+     * @return The message digest
+     */
+    private static MessageDigest getInstance(String algorithm) {
+        try {
+            if (BOUNCY_CASTLE_ALGORITHMS.contains(algorithm)) {
+                return MessageDigest.getInstance(algorithm, BouncyCastle.PROVIDER);
+            }
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new OrasException("Failed to create message digest", e);
+        }
+    }
+
+    /**
+     * Complete the message digest and format it
+     * @param prefix The prefix
+     * @param digest The message digest
+     * @return The digest
+     */
+    static String digest(String prefix, MessageDigest digest) {
+        return formatHex(prefix, digest.digest());
+    }
+
     private static String formatHex(String prefix, final byte[] hashBytes) {
         String formatHex = HEX_FORMAT.formatHex(hashBytes);
         return prefix + ":" + formatHex;
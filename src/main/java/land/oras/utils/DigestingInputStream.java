@@ -0,0 +1,207 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+package land.oras.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import land.oras.exception.OrasException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Input stream computing the digest of the content while it's read, so it can be verified without a second read.
+ * The digest covers the bytes read (or skipped) until {@link #getDigest()} is called.
+ * When created with an expected digest, the content is verified once the end of the stream is reached.
+ * Bytes read from a stream that was not read to its end are not verified, see {@link #isVerified()}
+ */
+@NullMarked
+public final class DigestingInputStream extends FilterInputStream {
+
+    /**
+     * The algorithm
+     */
+    private final SupportedAlgorithm algorithm;
+
+    /**
+     * The message digest
+     */
+    private final MessageDigest messageDigest;
+
+    /**
+     * The number of bytes read
+     */
+    private long size;
+
+    /**
+     * The digest once computed
+     */
+    private @Nullable String digest;
+
+    /**
+     * The digest verified at the end of the stream, if any
+     */
+    private final @Nullable String expectedDigest;
+
+    /**
+     * Whether the end of the stream was reached and matched the expected digest
+     */
+    private boolean verified;
+
+    /**
+     * Create a digesting input stream
+     * @param in The input stream
+     * @param algorithm The algorithm
+     */
+    public DigestingInputStream(InputStream in, SupportedAlgorithm algorithm) {
+        super(in);
+        this.algorithm = algorithm;
+        this.messageDigest = algorithm.newMessageDigest();
+        this.expectedDigest = null;
+    }
+
+    /**
+     * Create a digesting input stream verifying the content at the end of the stream.
+     * Reading the end of the stream throws an {@link OrasException} if the content doesn't match.
+     * Nothing is verified if the stream is closed before its end, callers stopping early must call
+     * {@link #verify(String)} or check {@link #isVerified()} before trusting the content
+     * @param in The input stream
+     * @param expectedDigest The expected digest
+     */
+    public DigestingInputStream(InputStream in, String expectedDigest) {
+        super(in);
+        this.algorithm = SupportedAlgorithm.fromDigest(expectedDigest);
+        this.messageDigest = algorithm.newMessageDigest();
+        this.expectedDigest = expectedDigest;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            messageDigest.update((byte) b);
+            size++;
+        } else {
+            onEnd();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            messageDigest.update(b, off, read);
+            size += read;
+        } else if (read == -1) {
+            onEnd();
+        }
+        return read;
+    }
+
+    /**
+     * Skip bytes by reading them, as skipped bytes are part of the digest
+     * @param n The number of bytes to skip
+     * @return The number of bytes skipped
+     * @throws IOException If the stream can't be read
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Reset not supported");
+    }
+
+    /**
+     * Verify the content once the end of the stream is reached
+     */
+    private void onEnd() {
+        if (expectedDigest != null) {
+            verify(expectedDigest);
+            verified = true;
+        }
+    }
+
+    /**
+     * Check if the content was verified against the expected digest, which happens once the end of the stream
+     * is read
+     * @return True if the whole content was read and matched the expected digest
+     */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    /**
+     * Get the number of bytes read
+     * @return The size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the digest of the bytes read. The digest is computed on the first call
+     * @return The digest
+     */
+    public String getDigest() {
+        if (digest == null) {
+            digest = algorithm.digest(messageDigest);
+        }
+        return digest;
+    }
+
+    /**
+     * Verify the digest of the bytes read
+     * @param expectedDigest The expected digest
+     * @throws OrasException If the digest doesn't match
+     */
+    public void verify(String expectedDigest) {
+        String actualDigest = getDigest();
+        if (!expectedDigest.equals(actualDigest)) {
+            throw new OrasException("Digest mismatch: %s != %s".formatted(expectedDigest, actualDigest));
+        }
+    }
+}
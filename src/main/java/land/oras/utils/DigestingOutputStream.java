@@ -0,0 +1,112 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+package land.oras.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import land.oras.exception.OrasException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Output stream computing the digest of the content while it's written, so it can be verified without a second read.
+ * The digest covers the bytes written until {@link #getDigest()} is called
+ */
+@NullMarked
+public final class DigestingOutputStream extends FilterOutputStream {
+
+    /**
+     * The algorithm
+     */
+    private final SupportedAlgorithm algorithm;
+
+    /**
+     * The message digest
+     */
+    private final MessageDigest messageDigest;
+
+    /**
+     * The number of bytes written
+     */
+    private long size;
+
+    /**
+     * The digest once computed
+     */
+    private @Nullable String digest;
+
+    /**
+     * Create a digesting output stream
+     * @param out The output stream
+     * @param algorithm The algorithm
+     */
+    public DigestingOutputStream(OutputStream out, SupportedAlgorithm algorithm) {
+        super(out);
+        this.algorithm = algorithm;
+        this.messageDigest = algorithm.newMessageDigest();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        messageDigest.update((byte) b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        messageDigest.update(b, off, len);
+        size += len;
+    }
+
+    /**
+     * Get the number of bytes written
+     * @return The size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the digest of the bytes written. The digest is computed on the first call
+     * @return The digest
+     */
+    public String getDigest() {
+        if (digest == null) {
+            digest = algorithm.digest(messageDigest);
+        }
+        return digest;
+    }
+
+    /**
+     * Verify the digest of the bytes written
+     * @param expectedDigest The expected digest
+     * @throws OrasException If the digest doesn't match
+     */
+    public void verify(String expectedDigest) {
+        String actualDigest = getDigest();
+        if (!expectedDigest.equals(actualDigest)) {
+            throw new OrasException("Digest mismatch: %s != %s".formatted(expectedDigest, actualDigest));
+        }
+    }
+}
@@ -20,6 +20,7 @@
 
 package land.oras.utils;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.*;
 import java.net.http.HttpClient;
@@ -27,17 +28,29 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509ExtendedTrustManager;
 import land.oras.ContainerRef;
+import land.oras.auth.AbstractUsernamePasswordProvider;
 import land.oras.auth.AuthProvider;
 import land.oras.auth.NoAuthProvider;
 import land.oras.exception.OrasException;
@@ -47,7 +60,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * HTTP client for ORAS
+ * HTTP client for ORAS. The client is safe for concurrent use and shares its connection pool between requests
  */
 @NullMarked
 public final class OrasHttpClient {
@@ -57,6 +70,16 @@ public final class OrasHttpClient {
      */
     private static final Logger LOG = LoggerFactory.getLogger(OrasHttpClient.class);
 
+    /**
+     * Default executor waiting for the rate limiter of throttled asynchronous requests.
+     * Waiting blocks a thread, so it never happens on the common pool
+     */
+    private static final Executor RATE_LIMITER_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "oras-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * The HTTP client builder
      */
@@ -70,7 +93,7 @@ public final class OrasHttpClient {
     /**
      * The authentication provider
      */
-    private AuthProvider authProvider;
+    private volatile AuthProvider authProvider;
 
     /**
      * Skip TLS verification
@@ -82,6 +105,41 @@ public final class OrasHttpClient {
      */
     private Integer timeout;
 
+    /**
+     * Timeout in seconds to receive the response of a request, no timeout if null
+     */
+    private @Nullable Integer requestTimeout;
+
+    /**
+     * The preferred HTTP version or null for the default
+     */
+    private HttpClient.@Nullable Version httpVersion;
+
+    /**
+     * The retry policy of idempotent requests
+     */
+    private RetryPolicy retryPolicy = RetryPolicy.defaults();
+
+    /**
+     * The number of retries since the client was created
+     */
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * The rate limiter of requests per registry host
+     */
+    private RateLimiter rateLimiter = RateLimiter.defaults();
+
+    /**
+     * The circuit breaker of requests per registry host
+     */
+    private CircuitBreaker circuitBreaker = CircuitBreaker.defaults();
+
+    /**
+     * The executor waiting for the rate limiter of asynchronous requests
+     */
+    private @Nullable Executor executor;
+
     /**
      * Hidden constructor
      */
@@ -106,15 +164,77 @@ public final class OrasHttpClient {
         }
     }
 
+    /**
+     * Set the timeout to receive the response of each request, separate from the connect timeout
+     * @param requestTimeout The timeout in seconds or null for no timeout
+     */
+    private void setRequestTimeout(@Nullable Integer requestTimeout) {
+        if (requestTimeout != null && requestTimeout < 1) {
+            throw new OrasException("Request timeout must be at least 1 second");
+        }
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Set the preferred HTTP version
+     * @param version The HTTP version or null for the default HTTP/2 with fallback to HTTP/1.1
+     */
+    private void setHttpVersion(HttpClient.@Nullable Version version) {
+        this.httpVersion = version;
+        if (version != null) {
+            this.builder.version(version);
+        }
+    }
+
+    /**
+     * Set the retry policy
+     * @param retryPolicy The retry policy
+     */
+    private void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Get the number of retries since the client was created
+     * @return The number of retries
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Set the rate limiter
+     * @param rateLimiter The rate limiter
+     */
+    private void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Set the circuit breaker
+     * @param circuitBreaker The circuit breaker
+     */
+    private void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Set the executor of the HTTP client
+     * @param executor The executor or null for the default executor
+     */
+    private void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+        if (executor != null) {
+            this.builder.executor(executor);
+        }
+    }
+
     /**
      * Set the authentication
      * @param authProvider The auth provider
      */
     private void setAuthentication(@Nullable AuthProvider authProvider) {
-        if (authProvider == null) {
-            this.authProvider = new NoAuthProvider();
-        }
-        this.authProvider = authProvider;
+        this.authProvider = authProvider != null ? authProvider : new NoAuthProvider();
     }
 
     /**
@@ -145,12 +265,22 @@ public final class OrasHttpClient {
     }
 
     /**
-     * Create a new HTTP client
+     * Build a new client from this configuration so that reusing the builder can't change it
      * @return The client
      */
-    public OrasHttpClient build() {
-        this.client = this.builder.build();
-        return this;
+    private OrasHttpClient build() {
+        OrasHttpClient orasHttpClient = new OrasHttpClient();
+        orasHttpClient.setTimeout(timeout);
+        orasHttpClient.setRequestTimeout(requestTimeout);
+        orasHttpClient.setHttpVersion(httpVersion);
+        orasHttpClient.setRetryPolicy(retryPolicy);
+        orasHttpClient.setRateLimiter(rateLimiter);
+        orasHttpClient.setCircuitBreaker(circuitBreaker);
+        orasHttpClient.setExecutor(executor);
+        orasHttpClient.setAuthentication(authProvider);
+        orasHttpClient.setTlsVerify(skipTlsVerify);
+        orasHttpClient.client = orasHttpClient.builder.build();
+        return orasHttpClient;
     }
 
     /**
@@ -169,6 +299,26 @@ public final class OrasHttpClient {
                 HttpRequest.BodyPublishers.noBody());
     }
 
+    /**
+     * Perform a GET request asynchronously
+     * @param uri The URI
+     * @param headers The headers
+     * @return The future response
+     */
+    public CompletableFuture<ResponseWrapper<String>> getAsync(URI uri, Map<String, String> headers) {
+        return executeRequestAsync("GET", uri, headers, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Download to an input stream asynchronously. The future completes once the response headers are received
+     * @param uri The URI
+     * @param headers The headers
+     * @return The future response
+     */
+    public CompletableFuture<ResponseWrapper<InputStream>> downloadAsync(URI uri, Map<String, String> headers) {
+        return executeRequestAsync("GET", uri, headers, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
     /**
      * Download to a file
      * @param uri The URI
@@ -186,6 +336,48 @@ public final class OrasHttpClient {
                 HttpRequest.BodyPublishers.noBody());
     }
 
+    /**
+     * Download to a file, resuming from the given offset with a range request.
+     * The file is appended on 206 Partial Content and overwritten when the server ignores the range.
+     * Error responses leave the file untouched
+     * @param uri The URI
+     * @param headers The headers
+     * @param file The file
+     * @param offset The number of bytes already downloaded to the file
+     * @return The response
+     */
+    public ResponseWrapper<Path> download(URI uri, Map<String, String> headers, Path file, long offset) {
+        Map<String, String> requestHeaders = new HashMap<>(headers);
+        if (offset > 0) {
+            requestHeaders.put(Const.RANGE_HEADER, "bytes=%d-".formatted(offset));
+        }
+        return executeRequest(
+                "GET",
+                uri,
+                requestHeaders,
+                new byte[0],
+                responseInfo -> {
+                    String contentRange = responseInfo
+                            .headers()
+                            .firstValue(Const.CONTENT_RANGE_HEADER)
+                            .orElse("");
+                    if (responseInfo.statusCode() == 206 && contentRange.startsWith("bytes %d-".formatted(offset))) {
+                        return HttpResponse.BodySubscribers.ofFile(
+                                file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    }
+                    if (responseInfo.statusCode() == 200) {
+                        return HttpResponse.BodySubscribers.ofFile(
+                                file,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+                    }
+                    return HttpResponse.BodySubscribers.replacing(file);
+                },
+                HttpRequest.BodyPublishers.noBody(),
+                false);
+    }
+
     /**
      * Download to to input stream
      * @param uri The URI
@@ -290,42 +482,56 @@ public final class OrasHttpClient {
                 HttpRequest.BodyPublishers.ofByteArray(body));
     }
 
+    /**
+     * Perform a PATCH request
+     * @param uri The URI
+     * @param body The body
+     * @param headers The headers
+     * @return The response
+     */
+    public ResponseWrapper<String> patch(URI uri, byte[] body, Map<String, String> headers) {
+        return executeRequest(
+                "PATCH",
+                uri,
+                headers,
+                body,
+                HttpResponse.BodyHandlers.ofString(),
+                HttpRequest.BodyPublishers.ofByteArray(body));
+    }
+
     /**
      * Upload a stream
      * @param method The method (POST or PUT)
      * @param uri The URI
      * @param input The input stream
-     * @param size The size of the stream
+     * @param size The size of the stream or -1 if unknown
      * @param headers The headers
      * @return The response
      */
     public ResponseWrapper<String> uploadStream(
             String method, URI uri, InputStream input, long size, Map<String, String> headers) {
         try {
+            // Send the content length when known instead of a chunked transfer encoding
             HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.ofInputStream(() -> input);
-
-            HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri).method(method, publisher);
-
-            // Add headers
-            headers.forEach(builder::header);
-
-            // Add authentication header if any
-            ContainerRef registry = ContainerRef.fromUrl(uri.toASCIIString());
-            if (this.authProvider.getAuthHeader(registry) != null) {
-                builder = builder.header(Const.AUTHORIZATION_HEADER, authProvider.getAuthHeader(registry));
+            if (size >= 0) {
+                publisher = HttpRequest.BodyPublishers.fromPublisher(publisher, size);
             }
 
             // Execute request
-            HttpRequest request = builder.build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            return toResponseWrapper(response);
-        } catch (Exception e) {
+            HttpRequest request = newRequest(method, uri, headers, publisher);
+            Instant sentAt = Instant.now();
+            HttpResponse<String> response = sendLimited(request, HttpResponse.BodyHandlers.ofString());
+            return toResponseWrapper(response, sentAt);
+        } catch (IOException e) {
+            throw new OrasException("Failed to upload stream", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new OrasException("Failed to upload stream", e);
         }
     }
 
     /**
-     * Execute a request
+     * Execute a request. Idempotent requests are retried on transient failures according to the retry policy
      * @param method The method
      * @param uri The URI
      * @param headers The headers
@@ -341,50 +547,490 @@ public final class OrasHttpClient {
             byte[] body,
             HttpResponse.BodyHandler<T> handler,
             HttpRequest.BodyPublisher bodyPublisher) {
-        try {
-            HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri).method(method, bodyPublisher);
+        return executeRequest(method, uri, headers, body, handler, bodyPublisher, true);
+    }
+
+    /**
+     * Execute a request. Idempotent requests are retried on transient failures according to the retry policy
+     * @param method The method
+     * @param uri The URI
+     * @param headers The headers
+     * @param body The body
+     * @param handler The response handler
+     * @param bodyPublisher The body publisher
+     * @param retryFailures False if a request failing without response must not be retried,
+     * typically because the handler already consumed part of the body
+     * @return The response
+     */
+    private <T> ResponseWrapper<T> executeRequest(
+            String method,
+            URI uri,
+            Map<String, String> headers,
+            byte[] body,
+            HttpResponse.BodyHandler<T> handler,
+            HttpRequest.BodyPublisher bodyPublisher,
+            boolean retryFailures) {
 
-            // Add authentication header if any
-            ContainerRef registry = ContainerRef.fromUrl(uri.toASCIIString());
-            if (this.authProvider.getAuthHeader(registry) != null) {
-                builder = builder.header(Const.AUTHORIZATION_HEADER, authProvider.getAuthHeader(registry));
+        // Uploads are not retried here, they are restarted by the caller from a fresh upload session
+        boolean idempotent = "GET".equals(method) || "HEAD".equals(method);
+        for (int attempt = 0; ; attempt++) {
+            ResponseWrapper<T> response;
+            try {
+                response = send(method, uri, headers, body, handler, bodyPublisher);
+            } catch (OrasException e) {
+                if (!idempotent || !retryFailures || !(e.getCause() instanceof IOException)) {
+                    throw e;
+                }
+                if (!awaitRetry(attempt, null)) {
+                    throw e;
+                }
+                continue;
             }
-            headers.forEach(builder::header);
-            HttpRequest request = builder.build();
+            if (idempotent
+                    && retryPolicy.isRetryable(response.statusCode())
+                    && awaitRetry(attempt, response.headers().get(Const.RETRY_AFTER_HEADER.toLowerCase()))) {
+                if (response.response() instanceof InputStream is) {
+                    try {
+                        is.close();
+                    } catch (IOException e) {
+                        LOG.debug("Failed to close stream", e);
+                    }
+                }
+                continue;
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Run an operation made of several requests, restarting it on transient failures according to the retry policy.
+     * A failure without response is transient if caused by an I/O error
+     * @param operation The operation
+     * @param <R> The result type
+     * @return The result of the operation
+     */
+    public <R> R retry(Supplier<R> operation) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (OrasException e) {
+                boolean transientFailure = e.getStatusCode() == -1
+                        ? e.getCause() instanceof IOException
+                        : retryPolicy.isRetryable(e.getStatusCode());
+                if (!transientFailure || !awaitRetry(attempt, null)) {
+                    throw e;
+                }
+                LOG.warn("Operation failed, restarting it", e);
+            }
+        }
+    }
+
+    /**
+     * Wait before retrying a failed attempt according to the retry policy
+     * @param attempt The number of the failed attempt, 0 for the first attempt
+     * @param retryAfter The Retry-After header of the failed response if any
+     * @return True if the attempt must be retried, false if no retry is left
+     */
+    private boolean awaitRetry(int attempt, @Nullable String retryAfter) {
+        Duration delay = getRetryDelay(attempt, retryAfter);
+        if (delay == null) {
+            return false;
+        }
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrasException("Interrupted while waiting to retry", e);
+        }
+        retries.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Get the delay before retrying a failed attempt according to the retry policy
+     * @param attempt The number of the failed attempt, 0 for the first attempt
+     * @param retryAfter The Retry-After header of the failed response if any
+     * @return The delay or null if no retry is left
+     */
+    private @Nullable Duration getRetryDelay(int attempt, @Nullable String retryAfter) {
+        if (attempt >= retryPolicy.getMaxRetries()) {
+            return null;
+        }
+        Duration delay = retryPolicy.getDelay(attempt, retryAfter);
+        if (delay == null) {
+            LOG.debug("Not retrying, Retry-After {} is longer than the maximum delay", retryAfter);
+            return null;
+        }
+        LOG.debug("Retrying in {} ms after attempt {}", delay.toMillis(), attempt + 1);
+        return delay;
+    }
+
+    /**
+     * Send a request, following a redirect if any
+     * @param method The method
+     * @param uri The URI
+     * @param headers The headers
+     * @param body The body
+     * @param handler The response handler
+     * @param bodyPublisher The body publisher
+     * @return The response
+     */
+    private <T> ResponseWrapper<T> send(
+            String method,
+            URI uri,
+            Map<String, String> headers,
+            byte[] body,
+            HttpResponse.BodyHandler<T> handler,
+            HttpRequest.BodyPublisher bodyPublisher) {
+        try {
+            HttpRequest request = newRequest(method, uri, headers, bodyPublisher);
+            Instant sentAt = Instant.now();
             logRequest(request, body);
-            HttpResponse<T> response = client.send(request, handler);
+            HttpResponse<T> response = sendLimited(request, handler);
 
-            if (response.statusCode() == HttpURLConnection.HTTP_MOVED_PERM
-                    || response.statusCode() == HttpURLConnection.HTTP_MOVED_TEMP
-                    || response.statusCode() == 307) {
+            if (isRedirect(response)) {
 
                 LOG.debug(
                         "Redirecting to {}",
                         response.headers().firstValue("Location").orElseThrow());
                 URI redirectUri =
                         new URI(response.headers().firstValue("Location").orElseThrow());
-                HttpRequest.Builder newBuilder =
-                        HttpRequest.newBuilder().uri(redirectUri).method(method, bodyPublisher);
-                HttpRequest newRequest = newBuilder.build();
+                HttpRequest newRequest = newRedirectRequest(method, redirectUri, headers, bodyPublisher);
                 logRequest(newRequest, body);
-                HttpResponse<T> newResponse = client.send(newRequest, handler);
-                return toResponseWrapper(newResponse);
+                HttpResponse<T> newResponse = sendLimited(newRequest, handler);
+                return toResponseWrapper(newResponse, sentAt);
             }
 
-            return toResponseWrapper(response);
+            return toResponseWrapper(response, sentAt);
+        } catch (OrasException e) {
+            throw e;
         } catch (Exception e) {
             LOG.error("Failed to execute request", e);
             throw new OrasException("Unable to create HTTP request", e);
         }
     }
 
-    private <T> ResponseWrapper<T> toResponseWrapper(HttpResponse<T> response) {
-        return new ResponseWrapper<>(
-                response.body(),
-                response.statusCode(),
-                response.headers().map().entrySet().stream()
-                        .collect(Collectors.toMap(
-                                Map.Entry::getKey, e -> e.getValue().get(0))));
+    /**
+     * Execute a request without body asynchronously. Idempotent requests are retried on transient failures
+     * according to the retry policy, waiting without blocking a thread
+     * @param method The method
+     * @param uri The URI
+     * @param headers The headers
+     * @param handler The response handler
+     * @return The future response
+     */
+    private <T> CompletableFuture<ResponseWrapper<T>> executeRequestAsync(
+            String method, URI uri, Map<String, String> headers, HttpResponse.BodyHandler<T> handler) {
+        return executeRequestAsync(method, uri, headers, handler, 0);
+    }
+
+    /**
+     * Execute an attempt of a request without body asynchronously, then schedule the next attempt if needed
+     * @param method The method
+     * @param uri The URI
+     * @param headers The headers
+     * @param handler The response handler
+     * @param attempt The number of the attempt, 0 for the first attempt
+     * @return The future response
+     */
+    private <T> CompletableFuture<ResponseWrapper<T>> executeRequestAsync(
+            String method, URI uri, Map<String, String> headers, HttpResponse.BodyHandler<T> handler, int attempt) {
+        boolean idempotent = "GET".equals(method) || "HEAD".equals(method);
+        return sendAsync(method, uri, headers, handler)
+                .handle((response, e) -> {
+                    Duration delay = null;
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        if (idempotent && cause.getCause() instanceof IOException) {
+                            delay = getRetryDelay(attempt, null);
+                        }
+                        if (delay == null) {
+                            return CompletableFuture.<ResponseWrapper<T>>failedFuture(cause);
+                        }
+                    } else if (idempotent && retryPolicy.isRetryable(response.statusCode())) {
+                        delay = getRetryDelay(attempt, response.headers().get(Const.RETRY_AFTER_HEADER.toLowerCase()));
+                        if (delay != null && response.response() instanceof InputStream is) {
+                            try {
+                                is.close();
+                            } catch (IOException ex) {
+                                LOG.debug("Failed to close stream", ex);
+                            }
+                        }
+                    }
+                    if (delay == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    retries.incrementAndGet();
+                    Executor delayed = executor != null
+                            ? CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS, executor)
+                            : CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS);
+                    return CompletableFuture.runAsync(() -> {}, delayed)
+                            .thenCompose(v -> executeRequestAsync(method, uri, headers, handler, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Send a request without body asynchronously, following a redirect if any
+     * @param method The method
+     * @param uri The URI
+     * @param headers The headers
+     * @param handler The response handler
+     * @return The future response
+     */
+    private <T> CompletableFuture<ResponseWrapper<T>> sendAsync(
+            String method, URI uri, Map<String, String> headers, HttpResponse.BodyHandler<T> handler) {
+        HttpRequest request = newRequest(method, uri, headers, HttpRequest.BodyPublishers.noBody());
+        Instant sentAt = Instant.now();
+        logRequest(request, new byte[0]);
+        return sendLimitedAsync(request, handler)
+                .thenCompose(response -> {
+                    if (!isRedirect(response)) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    String location = response.headers().firstValue("Location").orElseThrow();
+                    LOG.debug("Redirecting to {}", location);
+                    HttpRequest newRequest = newRedirectRequest(
+                            method, URI.create(location), headers, HttpRequest.BodyPublishers.noBody());
+                    logRequest(newRequest, new byte[0]);
+                    return sendLimitedAsync(newRequest, handler);
+                })
+                .handle((response, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        LOG.error("Failed to execute request", cause);
+                        throw new OrasException("Unable to execute HTTP request", cause);
+                    }
+                    return toResponseWrapper(response, sentAt);
+                });
+    }
+
+    /**
+     * Send a request once the rate limiter of its host allows it
+     * @param request The request
+     * @param handler The response handler
+     * @return The response
+     * @throws IOException If the request fails
+     * @throws InterruptedException If interrupted
+     */
+    private <T> HttpResponse<T> sendLimited(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        if (!rateLimiter.isEnabled() && !circuitBreaker.isEnabled()) {
+            return client.send(request, handler);
+        }
+        String host = hostOf(request.uri());
+        acquire(host);
+        HttpResponse<T> response = null;
+        Throwable failure = null;
+        try {
+            response = client.send(request, handler);
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            release(host, response, failure);
+        }
+    }
+
+    /**
+     * Send a request asynchronously once the rate limiter of its host allows it.
+     * Requests that don't have to wait are sent from the calling thread, else waiting for the rate limiter
+     * happens on the executor of the client or on dedicated threads, never on the common pool
+     * @param request The request
+     * @param handler The response handler
+     * @return The future response
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendLimitedAsync(
+            HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        if (!rateLimiter.isEnabled() && !circuitBreaker.isEnabled()) {
+            return client.sendAsync(request, handler);
+        }
+        String host = hostOf(request.uri());
+        CompletableFuture<Void> acquired;
+        try {
+            // Fail fast and don't switch thread unless the host is throttled
+            if (circuitBreaker.isEnabled()) {
+                circuitBreaker.acquire(host);
+            }
+            if (!rateLimiter.isEnabled() || rateLimiter.tryAcquire(host)) {
+                acquired = CompletableFuture.completedFuture(null);
+            } else {
+                acquired = CompletableFuture.runAsync(
+                        () -> acquireRateLimiter(host), executor != null ? executor : RATE_LIMITER_EXECUTOR);
+            }
+        } catch (OrasException e) {
+            acquired = CompletableFuture.failedFuture(e);
+        }
+        return acquired.thenCompose(v -> client.sendAsync(request, handler)
+                .whenComplete(
+                        (response, e) -> release(host, response, e instanceof CompletionException ? e.getCause() : e)));
+    }
+
+    /**
+     * Get the host of a request for the rate limiter and the circuit breaker. Requests are sent to the
+     * API registry, so its authority is the {@link ContainerRef#getApiRegistry()} without parsing the URL
+     * @param uri The URI
+     * @return The host with port if any
+     */
+    private static String hostOf(URI uri) {
+        String authority = uri.getRawAuthority();
+        return authority != null ? authority : uri.toASCIIString();
+    }
+
+    /**
+     * Check the circuit breaker then wait for the rate limiter of the host
+     * @param host The registry host
+     * @throws OrasException If the circuit breaker of the host is open
+     */
+    private void acquire(String host) {
+        if (circuitBreaker.isEnabled()) {
+            circuitBreaker.acquire(host);
+        }
+        if (rateLimiter.isEnabled()) {
+            acquireRateLimiter(host);
+        }
+    }
+
+    /**
+     * Wait for the rate limiter of the host, once the circuit breaker allowed the request
+     * @param host The registry host
+     */
+    private void acquireRateLimiter(String host) {
+        try {
+            rateLimiter.acquire(host);
+        } catch (OrasException e) {
+            if (circuitBreaker.isEnabled()) {
+                circuitBreaker.onCancel(host);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Record the outcome of a request in the circuit breaker and the rate limiter of the host
+     * @param host The registry host
+     * @param response The response or null if the request failed
+     * @param failure The failure if any
+     */
+    private void release(String host, @Nullable HttpResponse<?> response, @Nullable Throwable failure) {
+        if (rateLimiter.isEnabled()) {
+            rateLimiter.release(host);
+            if (response != null) {
+                rateLimiter.update(host, response.statusCode(), toHeaders(response));
+            }
+        }
+        if (circuitBreaker.isEnabled()) {
+            if (response != null) {
+                if (circuitBreaker.isFailure(response.statusCode())) {
+                    circuitBreaker.onFailure(host);
+                } else {
+                    circuitBreaker.onSuccess(host);
+                }
+            } else if (failure instanceof IOException) {
+                circuitBreaker.onFailure(host);
+            } else {
+                circuitBreaker.onCancel(host);
+            }
+        }
+    }
+
+    /**
+     * Create a request with the authentication header if any
+     * @param method The method
+     * @param uri The URI
+     * @param headers The headers
+     * @param bodyPublisher The body publisher
+     * @return The request
+     */
+    private HttpRequest newRequest(
+            String method, URI uri, Map<String, String> headers, HttpRequest.BodyPublisher bodyPublisher) {
+        HttpRequest.Builder builder = newRequestBuilder(method, uri, bodyPublisher);
+
+        // Add authentication header if any
+        String authHeader = getAuthHeader(uri);
+        if (authHeader != null) {
+            builder = builder.header(Const.AUTHORIZATION_HEADER, authHeader);
+        }
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    /**
+     * Create the request following a redirect. The caller headers, like Range, are kept but not the
+     * authentication header, the redirect location is often another host like a CDN with a signed URL
+     * @param method The method
+     * @param uri The redirect URI
+     * @param headers The headers of the original request
+     * @param bodyPublisher The body publisher
+     * @return The request
+     */
+    private HttpRequest newRedirectRequest(
+            String method, URI uri, Map<String, String> headers, HttpRequest.BodyPublisher bodyPublisher) {
+        HttpRequest.Builder builder = newRequestBuilder(method, uri, bodyPublisher);
+        headers.forEach((name, value) -> {
+            if (!Const.AUTHORIZATION_HEADER.equalsIgnoreCase(name)) {
+                builder.header(name, value);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Resolve the authentication header of a request. Only providers scoped by repository need the URL
+     * to be parsed, the header of other providers only depends on the host
+     * @param uri The URI
+     * @return The authentication header or null if not applicable
+     */
+    private @Nullable String getAuthHeader(URI uri) {
+        AuthProvider provider = authProvider;
+        if (provider instanceof NoAuthProvider) {
+            return null;
+        }
+        if (provider instanceof AbstractUsernamePasswordProvider) {
+            return provider.getAuthHeader(ContainerRef.forRegistry(hostOf(uri)));
+        }
+        return provider.getAuthHeader(ContainerRef.fromUrl(uri.toASCIIString()));
+    }
+
+    /**
+     * Create a request builder with the request timeout if any
+     * @param method The method
+     * @param uri The URI
+     * @param bodyPublisher The body publisher
+     * @return The request builder
+     */
+    private HttpRequest.Builder newRequestBuilder(String method, URI uri, HttpRequest.BodyPublisher bodyPublisher) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri).method(method, bodyPublisher);
+        if (requestTimeout != null) {
+            builder.timeout(Duration.ofSeconds(requestTimeout));
+        }
+        return builder;
+    }
+
+    /**
+     * Check if the response is a redirect to follow
+     * @param response The response
+     * @return True if the response is a redirect
+     */
+    private static boolean isRedirect(HttpResponse<?> response) {
+        return response.statusCode() == HttpURLConnection.HTTP_MOVED_PERM
+                || response.statusCode() == HttpURLConnection.HTTP_MOVED_TEMP
+                || response.statusCode() == 307;
+    }
+
+    private <T> ResponseWrapper<T> toResponseWrapper(HttpResponse<T> response, Instant sentAt) {
+        return new ResponseWrapper<>(response.body(), response.statusCode(), toHeaders(response), sentAt);
+    }
+
+    /**
+     * Get the first value of each response header
+     * @param response The response
+     * @return The headers
+     */
+    private static Map<String, String> toHeaders(HttpResponse<?> response) {
+        return response.headers().map().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get(0)));
     }
 
     /**
@@ -414,8 +1060,20 @@ public final class OrasHttpClient {
      * @param response The response
      * @param statusCode The status code
      * @param headers The headers
+     * @param sentAt When the request was sent, after its authentication header was resolved
      */
-    public record ResponseWrapper<T>(T response, int statusCode, Map<String, String> headers) {}
+    public record ResponseWrapper<T>(T response, int statusCode, Map<String, String> headers, Instant sentAt) {
+
+        /**
+         * Response wrapper of a request sent now
+         * @param response The response
+         * @param statusCode The status code
+         * @param headers The headers
+         */
+        public ResponseWrapper(T response, int statusCode, Map<String, String> headers) {
+            this(response, statusCode, headers, Instant.now());
+        }
+    }
 
     /**
      * Insecure trust manager when skipping TLS verification
@@ -446,7 +1104,8 @@ public final class OrasHttpClient {
     }
 
     /**
-     * Builder for the HTTP client
+     * Builder for the HTTP client. Each call to {@link #build()} returns a new client with its own connection pool,
+     * owned by the caller. Changing the builder afterwards doesn't change the clients already built
      */
     public static class Builder {
         private final OrasHttpClient client = new OrasHttpClient();
@@ -466,6 +1125,69 @@ public final class OrasHttpClient {
             return this;
         }
 
+        /**
+         * Set the timeout to receive the response of each request, separate from the connect timeout.
+         * Only the response headers must be received within the timeout, not the whole body
+         * @param requestTimeout The timeout in seconds or null for no timeout
+         * @return The builder
+         */
+        public Builder withRequestTimeout(@Nullable Integer requestTimeout) {
+            client.setRequestTimeout(requestTimeout);
+            return this;
+        }
+
+        /**
+         * Set the preferred HTTP version. HTTP/1.1 uses a pool of connections while HTTP/2 multiplexes requests
+         * on a single connection per host
+         * @param version The HTTP version or null for the default HTTP/2 with fallback to HTTP/1.1
+         * @return The builder
+         */
+        public Builder withHttpVersion(HttpClient.@Nullable Version version) {
+            client.setHttpVersion(version);
+            return this;
+        }
+
+        /**
+         * Set the retry policy of idempotent requests
+         * @param retryPolicy The retry policy
+         * @return The builder
+         */
+        public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+            client.setRetryPolicy(retryPolicy);
+            return this;
+        }
+
+        /**
+         * Set the rate limiter of requests per registry host
+         * @param rateLimiter The rate limiter
+         * @return The builder
+         */
+        public Builder withRateLimiter(RateLimiter rateLimiter) {
+            client.setRateLimiter(rateLimiter);
+            return this;
+        }
+
+        /**
+         * Set the circuit breaker of requests per registry host
+         * @param circuitBreaker The circuit breaker
+         * @return The builder
+         */
+        public Builder withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            client.setCircuitBreaker(circuitBreaker);
+            return this;
+        }
+
+        /**
+         * Set the executor used by the HTTP client for asynchronous tasks and dependent stages.
+         * For example a virtual thread per task executor on Java 21+
+         * @param executor The executor or null for the default executor
+         * @return The builder
+         */
+        public Builder withExecutor(@Nullable Executor executor) {
+            client.setExecutor(executor);
+            return this;
+        }
+
         /**
          * Set the authentication
          * @param authProvider The auth provider
@@ -495,7 +1217,7 @@ public final class OrasHttpClient {
         }
 
         /**
-         * Build the client
+         * Build a new client from the current configuration
          * @return The client
          */
         public OrasHttpClient build() {
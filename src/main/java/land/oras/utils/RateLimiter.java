@@ -0,0 +1,474 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import land.oras.exception.OrasException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client side rate limiter of registry requests, keyed by registry host.
+ * Each host has a token bucket limiting the request rate and a cap on the requests in flight.
+ * When adaptive, the rate is halved on 429 responses and slowly increased again while requests succeed.
+ * Requests are paused once the RateLimit headers of the registry announce an exhausted quota, until it's reset.
+ * The remaining quota doesn't set the rate, as registries announce quotas over windows of hours
+ */
+@NullMarked
+public final class RateLimiter {
+
+    /**
+     * The logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimiter.class);
+
+    /**
+     * The lowest rate the adaptive limiter goes down to, in requests per second
+     */
+    private static final double MIN_RATE = 0.1;
+
+    /**
+     * The RateLimit-Remaining header
+     */
+    private static final String RATE_LIMIT_REMAINING_HEADER = "ratelimit-remaining";
+
+    /**
+     * The RateLimit-Reset header
+     */
+    private static final String RATE_LIMIT_RESET_HEADER = "ratelimit-reset";
+
+    /**
+     * The maximum rate in requests per second per host
+     */
+    private double maxRate = Double.POSITIVE_INFINITY;
+
+    /**
+     * The maximum number of requests in flight per host, 0 for no limit
+     */
+    private int maxInFlight = 0;
+
+    /**
+     * Whether the rate adapts to the responses of the registry
+     */
+    private boolean adaptive = true;
+
+    /**
+     * The limiter of each host
+     */
+    private final Map<String, HostLimiter> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Hidden constructor
+     */
+    private RateLimiter() {}
+
+    /**
+     * Set the maximum rate
+     * @param maxRate The maximum rate in requests per second
+     */
+    private void setMaxRate(double maxRate) {
+        if (!(maxRate > 0)) {
+            throw new OrasException("Max rate must be positive");
+        }
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * Set the maximum number of requests in flight
+     * @param maxInFlight The maximum number of requests in flight, 0 for no limit
+     */
+    private void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 0) {
+            throw new OrasException("Max in flight must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Set whether the rate adapts to the responses of the registry
+     * @param adaptive True to adapt the rate
+     */
+    private void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Get the default rate limiter. It doesn't limit requests until the registry throttles them
+     * @return The default rate limiter
+     */
+    public static RateLimiter defaults() {
+        return new RateLimiter();
+    }
+
+    /**
+     * Get a rate limiter that never limits requests
+     * @return The rate limiter
+     */
+    public static RateLimiter none() {
+        return Builder.builder().withAdaptive(false).build();
+    }
+
+    /**
+     * Get the maximum rate in requests per second per host
+     * @return The maximum rate, infinite if not limited
+     */
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * Get the maximum number of requests in flight per host
+     * @return The maximum number of requests in flight, 0 for no limit
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Whether the rate adapts to the responses of the registry
+     * @return True if the rate is adaptive
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Get the current rate of a host
+     * @param host The registry host
+     * @return The rate in requests per second, infinite if not limited
+     */
+    public double getRate(String host) {
+        HostLimiter limiter = hosts.get(host);
+        return limiter != null ? limiter.getRate() : maxRate;
+    }
+
+    /**
+     * Check if the limiter can delay requests. A limiter that is not enabled doesn't need to be called
+     * @return True if requests can be delayed
+     */
+    public boolean isEnabled() {
+        return adaptive || maxInFlight > 0 || !Double.isInfinite(maxRate);
+    }
+
+    /**
+     * Wait until a request to the host can be sent. Each call must be followed by a call to {@link #release(String)}
+     * @param host The registry host
+     */
+    public void acquire(String host) {
+        HostLimiter limiter = hosts.computeIfAbsent(host, h -> new HostLimiter());
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrasException("Interrupted while waiting for the rate limiter", e);
+        }
+    }
+
+    /**
+     * Acquire a request to the host only if it can be sent without waiting.
+     * When acquired, the call must be followed by a call to {@link #release(String)}
+     * @param host The registry host
+     * @return True if acquired, false if the request must wait with {@link #acquire(String)}
+     */
+    public boolean tryAcquire(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostLimiter()).tryAcquire();
+    }
+
+    /**
+     * Release a request in flight to the host
+     * @param host The registry host
+     */
+    public void release(String host) {
+        HostLimiter limiter = hosts.get(host);
+        if (limiter != null) {
+            limiter.release();
+        }
+    }
+
+    /**
+     * Adapt the rate of the host to a response
+     * @param host The registry host
+     * @param statusCode The status code
+     * @param headers The response headers with lower case names
+     */
+    public void update(String host, int statusCode, Map<String, String> headers) {
+        if (!adaptive) {
+            return;
+        }
+        HostLimiter limiter = hosts.get(host);
+        if (limiter != null) {
+            limiter.update(host, statusCode, headers);
+        }
+    }
+
+    /**
+     * Parse the leading number of a header value such as {@code 76;w=21600}
+     * @param value The header value
+     * @return The number or null if absent or invalid
+     */
+    private static @Nullable Double parseNumber(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        String number = value.split("[;,]", 2)[0].trim();
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The token bucket and requests in flight of a host
+     */
+    private final class HostLimiter {
+
+        /**
+         * The requests in flight if limited
+         */
+        private final @Nullable Semaphore inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight, true) : null;
+
+        /**
+         * The current rate in requests per second
+         */
+        private double rate = maxRate;
+
+        /**
+         * The time in nanoseconds at which the bucket is empty again if no request is sent
+         */
+        private long emptyAt = System.nanoTime();
+
+        /**
+         * No request is sent before this time in nanoseconds
+         */
+        private long pausedUntil = System.nanoTime();
+
+        /**
+         * The start of the current window used to measure the request rate
+         */
+        private long windowStart = System.nanoTime();
+
+        /**
+         * The number of requests of the current window
+         */
+        private int windowCount;
+
+        /**
+         * The measured rate of the previous window in requests per second
+         */
+        private double observedRate;
+
+        /**
+         * Wait for a request slot and a token
+         * @throws InterruptedException If interrupted while waiting
+         */
+        private void acquire() throws InterruptedException {
+            if (inFlight != null) {
+                inFlight.acquire();
+            }
+            try {
+                long wait = reserve(false);
+                if (wait > 0) {
+                    LOG.debug("Rate limited, waiting {} ms", TimeUnit.NANOSECONDS.toMillis(wait));
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            } catch (InterruptedException e) {
+                release();
+                throw e;
+            }
+        }
+
+        /**
+         * Take a request slot and a token only if available without waiting
+         * @return True if taken
+         */
+        private boolean tryAcquire() {
+            if (inFlight != null && !inFlight.tryAcquire()) {
+                return false;
+            }
+            if (reserve(true) > 0) {
+                release();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Release a request slot
+         */
+        private void release() {
+            if (inFlight != null) {
+                inFlight.release();
+            }
+        }
+
+        /**
+         * Take a token from the bucket. The bucket holds up to one second of requests
+         * @param ifReady True to take the token only if the request doesn't have to wait
+         * @return The time to wait in nanoseconds before sending the request
+         */
+        private synchronized long reserve(boolean ifReady) {
+            long now = System.nanoTime();
+            long wait = Math.max(0, pausedUntil - now);
+            long nextEmptyAt = emptyAt;
+            if (!Double.isInfinite(rate)) {
+                long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+                long capacity = Math.max(1, (long) rate) * interval;
+                nextEmptyAt = Math.max(emptyAt, now + wait) + interval;
+                wait = Math.max(wait, nextEmptyAt - capacity - now);
+            }
+            if (ifReady && wait > 0) {
+                return wait;
+            }
+            measure(now);
+            emptyAt = nextEmptyAt;
+            return wait;
+        }
+
+        /**
+         * Count a request in the measured rate
+         * @param now The current time in nanoseconds
+         */
+        private void measure(long now) {
+            long elapsed = now - windowStart;
+            if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+                observedRate = windowCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                windowStart = now;
+                windowCount = 0;
+            }
+            windowCount++;
+        }
+
+        /**
+         * Get the current rate
+         * @return The rate in requests per second
+         */
+        private synchronized double getRate() {
+            return rate;
+        }
+
+        /**
+         * Adapt the rate to a response
+         * @param host The registry host
+         * @param statusCode The status code
+         * @param headers The response headers with lower case names
+         */
+        private synchronized void update(String host, int statusCode, Map<String, String> headers) {
+            long now = System.nanoTime();
+            if (statusCode == 429) {
+                // Unlimited so far, start from the rate that triggered the throttling
+                double current = Double.isInfinite(rate) ? Math.max(observedRate, windowCount) : rate;
+                rate = Math.max(MIN_RATE, current / 2);
+                Double retryAfter = parseNumber(headers.get(Const.RETRY_AFTER_HEADER.toLowerCase()));
+                if (retryAfter != null) {
+                    pausedUntil = Math.max(pausedUntil, now + (long) (retryAfter * TimeUnit.SECONDS.toNanos(1)));
+                }
+                LOG.debug("Throttled by {}, reducing rate to {} requests per second", host, rate);
+            } else if (statusCode < 500 && !Double.isInfinite(rate)) {
+                // Additive increase of about one request per second every second
+                rate = Math.min(maxRate, rate + 1 / Math.max(rate, 1));
+            }
+
+            // Pause once the quota announced by the registry is exhausted, until it's reset
+            Double remaining = parseNumber(headers.get(RATE_LIMIT_REMAINING_HEADER));
+            if (remaining != null && remaining <= 0) {
+                Double reset = parseNumber(headers.get(RATE_LIMIT_RESET_HEADER));
+                if (reset == null) {
+                    reset = parseNumber(headers.get(Const.RETRY_AFTER_HEADER.toLowerCase()));
+                }
+                if (reset != null && reset > 0) {
+                    LOG.debug("Quota of {} exhausted, pausing for {} seconds", host, reset);
+                    pausedUntil = Math.max(pausedUntil, now + (long) (reset * TimeUnit.SECONDS.toNanos(1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder for the rate limiter
+     */
+    public static class Builder {
+
+        private final RateLimiter limiter = new RateLimiter();
+
+        /**
+         * Hidden constructor
+         */
+        private Builder() {
+            // Hide constructor
+        }
+
+        /**
+         * Set the maximum rate in requests per second per host
+         * @param maxRate The maximum rate
+         * @return The builder
+         */
+        public Builder withMaxRate(double maxRate) {
+            limiter.setMaxRate(maxRate);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of requests in flight per host
+         * @param maxInFlight The maximum number of requests in flight, 0 for no limit
+         * @return The builder
+         */
+        public Builder withMaxInFlight(int maxInFlight) {
+            limiter.setMaxInFlight(maxInFlight);
+            return this;
+        }
+
+        /**
+         * Set whether the rate adapts to 429 responses and RateLimit headers of the registry
+         * @param adaptive True to adapt the rate
+         * @return The builder
+         */
+        public Builder withAdaptive(boolean adaptive) {
+            limiter.setAdaptive(adaptive);
+            return this;
+        }
+
+        /**
+         * Return a new builder
+         * @return The builder
+         */
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        /**
+         * Build the rate limiter
+         * @return The rate limiter
+         */
+        public RateLimiter build() {
+            RateLimiter built = new RateLimiter();
+            built.setMaxRate(limiter.maxRate);
+            built.setMaxInFlight(limiter.maxInFlight);
+            built.setAdaptive(limiter.adaptive);
+            return built;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import land.oras.exception.OrasException;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Retry policy for transient registry failures.
+ * Retries use a capped exponential backoff with jitter, or the delay requested by the Retry-After header
+ */
+@NullMarked
+public final class RetryPolicy {
+
+    /**
+     * Status codes of transient failures
+     */
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 429, 500, 502, 503, 504);
+
+    /**
+     * The maximum number of retries after the first attempt
+     */
+    private int maxRetries = 3;
+
+    /**
+     * The delay before the first retry
+     */
+    private Duration initialDelay = Duration.ofMillis(200);
+
+    /**
+     * The maximum delay between two attempts
+     */
+    private Duration maxDelay = Duration.ofSeconds(10);
+
+    /**
+     * Hidden constructor
+     */
+    private RetryPolicy() {}
+
+    /**
+     * Set the maximum number of retries
+     * @param maxRetries The maximum number of retries
+     */
+    private void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new OrasException("Max retries must be positive");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Set the delay before the first retry
+     * @param initialDelay The delay
+     */
+    private void setInitialDelay(Duration initialDelay) {
+        if (initialDelay.isNegative()) {
+            throw new OrasException("Initial delay must be positive");
+        }
+        this.initialDelay = initialDelay;
+    }
+
+    /**
+     * Set the maximum delay between two attempts
+     * @param maxDelay The delay
+     */
+    private void setMaxDelay(Duration maxDelay) {
+        if (maxDelay.isNegative()) {
+            throw new OrasException("Max delay must be positive");
+        }
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Get the default retry policy
+     * @return The default retry policy
+     */
+    public static RetryPolicy defaults() {
+        return new RetryPolicy();
+    }
+
+    /**
+     * Get a retry policy that never retries
+     * @return The retry policy
+     */
+    public static RetryPolicy none() {
+        return Builder.builder().withMaxRetries(0).build();
+    }
+
+    /**
+     * Get the maximum number of retries after the first attempt
+     * @return The maximum number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Get the delay before the first retry
+     * @return The delay
+     */
+    public Duration getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * Get the maximum delay between two attempts
+     * @return The delay
+     */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Check if a status code is a transient failure. Status -1 is a failure without response
+     * @param statusCode The status code
+     * @return True if the request can be retried
+     */
+    public boolean isRetryable(int statusCode) {
+        return statusCode == -1 || RETRYABLE_STATUS_CODES.contains(statusCode);
+    }
+
+    /**
+     * Get the delay before a retry. Half of the exponential backoff is randomized so that clients failing
+     * at the same time don't retry at the same time
+     * @param attempt The number of the failed attempt, 0 for the first attempt
+     * @param retryAfter The Retry-After header of the failed response if any
+     * @return The delay or null if the Retry-After delay is longer than the maximum delay
+     */
+    public @Nullable Duration getDelay(int attempt, @Nullable String retryAfter) {
+        long max = maxDelay.toMillis();
+        long backoff = Math.min(max, initialDelay.toMillis() << Math.min(attempt, 30));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        Duration requested = parseRetryAfter(retryAfter);
+        if (requested != null) {
+            if (requested.toMillis() > max) {
+                return null;
+            }
+            delay = Math.max(delay, requested.toMillis());
+        }
+        return Duration.ofMillis(Math.min(delay, max));
+    }
+
+    /**
+     * Parse a Retry-After header in seconds or as HTTP date
+     * @param retryAfter The header value
+     * @return The delay or null if absent or invalid
+     */
+    private static @Nullable Duration parseRetryAfter(@Nullable String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(ZonedDateTime.now(), date);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Builder for the retry policy
+     */
+    public static class Builder {
+
+        private final RetryPolicy policy = new RetryPolicy();
+
+        /**
+         * Hidden constructor
+         */
+        private Builder() {
+            // Hide constructor
+        }
+
+        /**
+         * Set the maximum number of retries after the first attempt. 0 disables retries
+         * @param maxRetries The maximum number of retries
+         * @return The builder
+         */
+        public Builder withMaxRetries(int maxRetries) {
+            policy.setMaxRetries(maxRetries);
+            return this;
+        }
+
+        /**
+         * Set the delay before the first retry. The delay doubles on each retry
+         * @param initialDelay The delay
+         * @return The builder
+         */
+        public Builder withInitialDelay(Duration initialDelay) {
+            policy.setInitialDelay(initialDelay);
+            return this;
+        }
+
+        /**
+         * Set the maximum delay between two attempts. A longer Retry-After stops retrying
+         * @param maxDelay The delay
+         * @return The builder
+         */
+        public Builder withMaxDelay(Duration maxDelay) {
+            policy.setMaxDelay(maxDelay);
+            return this;
+        }
+
+        /**
+         * Return a new builder
+         * @return The builder
+         */
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        /**
+         * Build the retry policy
+         * @return The retry policy
+         */
+        public RetryPolicy build() {
+            RetryPolicy built = new RetryPolicy();
+            built.setMaxRetries(policy.maxRetries);
+            built.setInitialDelay(policy.initialDelay);
+            built.setMaxDelay(policy.maxDelay);
+            return built;
+        }
+    }
+}
@@ -22,6 +22,7 @@ package land.oras.utils;
 
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.regex.Pattern;
 import land.oras.exception.OrasException;
 import org.jspecify.annotations.NullMarked;
@@ -93,7 +94,7 @@ public enum SupportedAlgorithm {
     }
 
     /**
-     * Digest a file
+     * Digest a file, or get its digest from the {@link DigestCache} if enabled
      * @param file The file
      * @return The digest
      */
@@ -101,6 +102,16 @@ public enum SupportedAlgorithm {
         return DigestUtils.digest(algorithm, prefix, file);
     }
 
+    /**
+     * Digest a file, always reading its content even if the {@link DigestCache} is enabled.
+     * Used to verify downloaded content
+     * @param file The file
+     * @return The digest
+     */
+    public String digestContent(Path file) {
+        return DigestUtils.digestFile(algorithm, prefix, file);
+    }
+
     /**
      * Digest an input stream
      * @param inputStream The input stream
@@ -110,6 +121,23 @@ public enum SupportedAlgorithm {
         return DigestUtils.digest(algorithm, prefix, inputStream);
     }
 
+    /**
+     * Create a new message digest to hash content incrementally
+     * @return The message digest
+     */
+    public MessageDigest newMessageDigest() {
+        return DigestUtils.newMessageDigest(algorithm);
+    }
+
+    /**
+     * Complete a message digest created with {@link #newMessageDigest()}
+     * @param messageDigest The message digest
+     * @return The digest
+     */
+    public String digest(MessageDigest messageDigest) {
+        return DigestUtils.digest(prefix, messageDigest);
+    }
+
     /**
      * Check if the algorithm match pattern
      * @param digest The digest
@@ -20,13 +20,14 @@
 
 package land.oras.utils;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.function.Function;
 import land.oras.LocalPath;
 import land.oras.exception.OrasException;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
 import org.jspecify.annotations.NullMarked;
 
 /**
@@ -40,26 +41,17 @@ public enum SupportedCompression {
     /**
      * No compression
      */
-    NO_COMPRESSION(Const.DEFAULT_BLOB_MEDIA_TYPE, (localPath -> localPath), (is -> {
-        // This is just a tar we need to copy the stream to a temporary file
-        try {
-            Path temp = ArchiveUtils.createTempTar();
-            Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
-            return LocalPath.of(temp, Const.DEFAULT_BLOB_MEDIA_TYPE);
-        } catch (Exception e) {
-            throw new OrasException("Failed to copy stream to temporary file", e);
-        }
-    })),
+    NO_COMPRESSION(Const.DEFAULT_BLOB_MEDIA_TYPE, (localPath -> localPath), (is -> is)),
 
     /**
      * GZIP
      */
-    GZIP(Const.DEFAULT_BLOB_DIR_MEDIA_TYPE, ArchiveUtils::compressGzip, ArchiveUtils::uncompressGzip),
+    GZIP(Const.DEFAULT_BLOB_DIR_MEDIA_TYPE, ArchiveUtils::compressGzip, GzipCompressorInputStream::new),
 
     /**
      * ZSTD
      */
-    ZSTD(Const.BLOB_DIR_ZSTD_MEDIA_TYPE, ArchiveUtils::compressZstd, ArchiveUtils::uncompressZstd);
+    ZSTD(Const.BLOB_DIR_ZSTD_MEDIA_TYPE, ArchiveUtils::compressZstd, ZstdCompressorInputStream::new);
 
     /**
      * The media type
@@ -72,18 +64,31 @@ public enum SupportedCompression {
     private final Function<LocalPath, LocalPath> compressFunction;
 
     /**
-     * The uncompress function
+     * The uncompress function, wrapping the compressed stream
+     */
+    private final Uncompressor uncompressFunction;
+
+    /**
+     * Wrap a compressed stream into an uncompressed stream
      */
-    private final Function<InputStream, LocalPath> uncompressFunction;
+    @FunctionalInterface
+    private interface Uncompressor {
+
+        /**
+         * Wrap the stream
+         * @param inputStream The compressed stream
+         * @return The uncompressed stream
+         * @throws IOException If the stream can't be read
+         */
+        InputStream apply(InputStream inputStream) throws IOException;
+    }
 
     /**
      * Get the supported compression
      * @param mediaType The media type
      */
     SupportedCompression(
-            String mediaType,
-            Function<LocalPath, LocalPath> compressFunction,
-            Function<InputStream, LocalPath> uncompressFunction) {
+            String mediaType, Function<LocalPath, LocalPath> compressFunction, Uncompressor uncompressFunction) {
         this.mediaType = mediaType;
         this.compressFunction = compressFunction;
         this.uncompressFunction = uncompressFunction;
@@ -110,12 +115,13 @@ public enum SupportedCompression {
     }
 
     /**
-     * Uncompress
-     * @param inputStream The input stream
-     * @return The uncompressed path
+     * Uncompress while reading
+     * @param inputStream The compressed input stream
+     * @return The uncompressed input stream
+     * @throws IOException If the stream can't be read
      */
-    LocalPath uncompress(InputStream inputStream) {
-        return uncompressFunction.apply(inputStream);
+    InputStream uncompress(InputStream inputStream) throws IOException {
+        return uncompressFunction.apply(new BufferedInputStream(inputStream));
     }
 
     /**
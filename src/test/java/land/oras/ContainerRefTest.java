@@ -149,4 +149,29 @@ public class ContainerRefTest {
         ContainerRef containerRef = ContainerRef.fromUrl("http://docker.io/foo/bar/test/api");
         assertEquals("docker.io", containerRef.getRegistry());
     }
+
+    @Test
+    void shouldGetRepositoryFromApiUrl() {
+        ContainerRef containerRef =
+                ContainerRef.fromUrl("https://localhost:5000/v2/library/foo/alpine/blobs/uploads/1234?digest=sha256:1");
+        assertEquals("localhost:5000", containerRef.getRegistry());
+        assertEquals("library/foo/alpine", containerRef.getFullRepository());
+        containerRef = ContainerRef.fromUrl("http://localhost:5000/v2/alpine/manifests/latest");
+        assertEquals("localhost:5000", containerRef.getRegistry());
+        assertEquals("alpine", containerRef.getFullRepository());
+        containerRef = ContainerRef.fromUrl("localhost:5000/v2/library/alpine/tags/list");
+        assertEquals("localhost:5000", containerRef.getRegistry());
+        assertEquals("library/alpine", containerRef.getFullRepository());
+    }
+
+    @Test
+    void shouldGetBlobsUploadMountPath() {
+        ContainerRef source = ContainerRef.parse("demo.goharbor.io/library/foo/alpine:latest");
+        ContainerRef target = ContainerRef.parse("demo.goharbor.io/other/alpine@sha256:1234567890abcdef");
+        assertEquals("library/foo/alpine", source.getFullRepository());
+        assertEquals(
+                "demo.goharbor.io/v2/other/alpine/blobs/uploads/?mount=sha256:1234567890abcdef&from=library/foo/alpine",
+                target.getBlobsUploadMountPath(source));
+        assertThrows(OrasException.class, () -> source.getBlobsUploadMountPath(target));
+    }
 }
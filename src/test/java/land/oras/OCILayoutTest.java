@@ -22,6 +22,7 @@ package land.oras;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -298,6 +299,36 @@ public class OCILayoutTest {
         assertEquals(1, index.getManifests().get(0).getAnnotations().size());
     }
 
+    @Test
+    void shouldPushConcurrentlyToOciLayout() throws IOException {
+
+        Path ociLayoutPath = layoutPath.resolve("shouldPushConcurrentlyToOciLayout");
+        List<LocalPath> paths = new java.util.ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Path artifactPath = blobDir.resolve("shouldPushConcurrentlyToOciLayout-%d.txt".formatted(i));
+            Files.writeString(artifactPath, "content-%d".formatted(i));
+            paths.add(LocalPath.of(artifactPath, "text/plain"));
+        }
+
+        LayoutRef layoutRef = LayoutRef.parse("%s:latest".formatted(ociLayoutPath.toString()));
+        OCILayout ociLayout = OCILayout.Builder.builder()
+                .defaults(ociLayoutPath)
+                .withParallelism(4)
+                .build();
+
+        Manifest manifest = ociLayout.pushArtifact(layoutRef, paths.toArray(new LocalPath[0]));
+
+        // Layers keep the order of the paths
+        assertEquals(10, manifest.getLayers().size());
+        for (int i = 0; i < 10; i++) {
+            Layer layer = manifest.getLayers().get(i);
+            assertEquals(
+                    "shouldPushConcurrentlyToOciLayout-%d.txt".formatted(i),
+                    layer.getAnnotations().get(Const.ANNOTATION_TITLE));
+            assertBlobContent(ociLayoutPath, layer.getDigest(), "content-%d".formatted(i));
+        }
+    }
+
     @Test
     void shouldPullViaTagFromOciLayout() throws IOException {
 
@@ -445,6 +476,60 @@ public class OCILayoutTest {
         assertBlobContent(path, digest, "hi");
     }
 
+    @Test
+    void shouldPushBlobFromStream() throws IOException {
+
+        Path path = layoutPath.resolve("shouldPushBlobFromStream");
+
+        byte[] content = "streamed".getBytes(StandardCharsets.UTF_8);
+        String digest = SupportedAlgorithm.SHA256.digest(content);
+
+        LayoutRef layoutRef = LayoutRef.parse("%s@%s".formatted(path.toString(), digest));
+        OCILayout ociLayout = OCILayout.Builder.builder().defaults(path).build();
+
+        Layer layer = ociLayout.pushBlob(layoutRef, new ByteArrayInputStream(content));
+        assertEquals(digest, layer.getDigest());
+        assertEquals(content.length, layer.getSize());
+        assertBlobContent(path, digest, "streamed");
+
+        // Wrong content is rejected without leaving partial files
+        LayoutRef otherRef = LayoutRef.parse(
+                "%s@%s".formatted(path.toString(), SupportedAlgorithm.SHA256.digest("other".getBytes())));
+        assertThrows(
+                OrasException.class,
+                () -> ociLayout.pushBlob(otherRef, new ByteArrayInputStream("wrong".getBytes(StandardCharsets.UTF_8))));
+        try (var files = Files.list(path.resolve("blobs").resolve("sha256"))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void shouldPushBlobFromFile() throws IOException {
+
+        Path path = layoutPath.resolve("shouldPushBlobFromFile");
+        Path file = blobDir.resolve("shouldPushBlobFromFile.txt");
+        Files.writeString(file, "from file");
+        String digest = SupportedAlgorithm.SHA256.digest(file);
+
+        LayoutRef layoutRef = LayoutRef.parse("%s@%s".formatted(path.toString(), digest));
+        OCILayout ociLayout = OCILayout.Builder.builder().defaults(path).build();
+
+        Layer layer = ociLayout.pushBlob(layoutRef, file, Map.of(Const.ANNOTATION_TITLE, "file.txt"));
+        assertEquals(digest, layer.getDigest());
+        assertEquals(Files.size(file), layer.getSize());
+        assertEquals(Const.DEFAULT_BLOB_MEDIA_TYPE, layer.getMediaType());
+        assertEquals("file.txt", layer.getAnnotations().get(Const.ANNOTATION_TITLE));
+        assertBlobContent(path, digest, "from file");
+
+        // Wrong digest is rejected without leaving partial files
+        LayoutRef otherRef = LayoutRef.parse(
+                "%s@%s".formatted(path.toString(), SupportedAlgorithm.SHA256.digest("other".getBytes())));
+        assertThrows(OrasException.class, () -> ociLayout.pushBlob(otherRef, file, Map.of()));
+        try (var files = Files.list(path.resolve("blobs").resolve("sha256"))) {
+            assertEquals(1, files.count());
+        }
+    }
+
     @Test
     void cannotPushBlobWithoutTagOrDigest() throws IOException {
 
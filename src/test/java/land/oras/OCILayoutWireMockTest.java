@@ -51,7 +51,7 @@ public class OCILayoutWireMockTest {
         // Using here a unique container reference to avoid conflicts when running in parallel
         ContainerRef ref = ContainerRef.parse("%s/library/invalid-copy-artifact".formatted(registryUrl));
 
-        wireMock.register(WireMock.head(WireMock.urlEqualTo("/v2/library/invalid-copy-artifact/manifests/latest"))
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/invalid-copy-artifact/manifests/latest"))
                 .willReturn(WireMock.noContent()));
 
         // No content type
@@ -62,14 +62,14 @@ public class OCILayoutWireMockTest {
         assertEquals("Content type not found in headers", exception.getMessage());
 
         // No manifest digest
-        wireMock.register(WireMock.head(WireMock.urlEqualTo("/v2/library/invalid-copy-artifact/manifests/latest"))
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/invalid-copy-artifact/manifests/latest"))
                 .willReturn(
                         WireMock.noContent().withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)));
         exception = assertThrows(OrasException.class, () -> ociLayout.copy(registry, ref));
         assertEquals("Manifest digest not found in headers", exception.getMessage());
 
         // Invalid content type
-        wireMock.register(WireMock.head(WireMock.urlEqualTo("/v2/library/invalid-copy-artifact/manifests/latest"))
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/invalid-copy-artifact/manifests/latest"))
                 .willReturn(WireMock.noContent()
                         .withHeader(Const.CONTENT_TYPE_HEADER, "application/json")
                         .withHeader(Const.DOCKER_CONTENT_DIGEST_HEADER, "sha256:1234")));
@@ -32,9 +32,13 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import land.oras.exception.OrasException;
 import land.oras.utils.Const;
 import land.oras.utils.RegistryContainer;
@@ -42,7 +46,6 @@ import land.oras.utils.SupportedAlgorithm;
 import land.oras.utils.ZotContainer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.parallel.Execution;
@@ -491,7 +494,6 @@ public class RegistryTest {
     }
 
     @Test
-    @Disabled("Disabled due to partial implementation")
     void testShouldCopySingleArtifact() throws IOException {
         // Copy to same registry
         Registry registry = Registry.Builder.builder()
@@ -1023,4 +1025,38 @@ public class RegistryTest {
         Files.delete(largeFile);
         registry.deleteBlob(containerRef.withDigest(layer.getDigest()));
     }
+
+    @Test
+    void shouldShareRegistryAcrossThreads() throws Exception {
+        Registry registry = Registry.Builder.builder()
+                .defaults("myuser", "mypass")
+                .withInsecure(true)
+                .build();
+
+        // Push and pull artifacts from several threads with the same registry
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    ContainerRef containerRef = ContainerRef.parse("%s/library/artifact-shared-%d:tag-%d"
+                            .formatted(this.registry.getRegistry(), index % 4, index));
+                    Path source = Files.createDirectory(blobDir.resolve("source-%d".formatted(index)));
+                    Path file = Files.writeString(source.resolve("file-%d.txt".formatted(index)), "shared-" + index);
+                    registry.pushArtifact(containerRef, LocalPath.of(file));
+
+                    Path target = Files.createDirectory(extractDir.resolve("target-%d".formatted(index)));
+                    registry.pullArtifact(containerRef, target, true);
+                    assertEquals("shared-" + index, Files.readString(target.resolve(file.getFileName())));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
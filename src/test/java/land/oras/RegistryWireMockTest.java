@@ -21,29 +21,58 @@
 package land.oras;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
 import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 import land.oras.auth.AuthStore;
 import land.oras.auth.AuthStoreAuthenticationProvider;
 import land.oras.auth.BearerTokenProvider;
 import land.oras.auth.UsernamePasswordProvider;
 import land.oras.exception.OrasException;
+import land.oras.utils.ArchiveUtils;
+import land.oras.utils.CircuitBreaker;
 import land.oras.utils.Const;
 import land.oras.utils.JsonUtils;
+import land.oras.utils.OrasHttpClient;
+import land.oras.utils.RateLimiter;
+import land.oras.utils.RetryPolicy;
 import land.oras.utils.SupportedAlgorithm;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.parallel.Execution;
@@ -234,24 +263,21 @@ public class RegistryWireMockTest {
         assertEquals(408, exception.getStatusCode());
     }
 
-    // Note: Currently this test is @Disabled because the retry functionality isn't implemented.
-    // remove the @Disabled annotation and the test should pass.
     @Test
-    @Disabled("Automatic retry not yet implemented in SDK")
     void shouldRetryBlobUpload(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
         WireMock wireMock = wmRuntimeInfo.getWireMock();
         String registryUrl = wmRuntimeInfo.getHttpBaseUrl().replace("http://", "");
         String uploadUrl = "/v2/library/artifact-text/blobs/uploads/";
 
         // Setting up WireMock to simulate a failed first attempt
-        wireMock.register(WireMock.post(WireMock.urlEqualTo(uploadUrl))
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo(uploadUrl))
                 .inScenario("upload retry scenario")
                 .whenScenarioStateIs(Scenario.STARTED)
                 .willReturn(WireMock.serverError())
                 .willSetStateTo("retry"));
 
         // Setting up WireMock for successful retry
-        wireMock.register(WireMock.post(WireMock.urlEqualTo(uploadUrl))
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo(uploadUrl))
                 .inScenario("upload retry scenario")
                 .whenScenarioStateIs("retry")
                 .willReturn(WireMock.aResponse().withStatus(202).withHeader("Location", uploadUrl + "12345")));
@@ -266,13 +292,288 @@ public class RegistryWireMockTest {
         Files.writeString(testFile, "Test Content");
 
         try (InputStream inputStream = Files.newInputStream(testFile)) {
-            // when retry is implemented we dont want to throw an exception here as it will retry
+            // The upload is restarted from a new session
             Layer layer = registry.pushBlob(ref, inputStream);
 
             // assertions will verify that the upload succeeded after retry
             assertNotNull(layer);
             assertNotNull(layer.getDigest());
         }
+        assertEquals(1, registry.getRetryCount());
+    }
+
+    @Test
+    void shouldRetryTransientFailures(WireMockRuntimeInfo wmRuntimeInfo) {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String tagsUrl = "/v2/library/retry-tags/tags/list";
+
+        // Rate limited, then unavailable, then ok
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("retry tags")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.status(429).withHeader(Const.RETRY_AFTER_HEADER, "1"))
+                .willSetStateTo("unavailable"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("retry tags")
+                .whenScenarioStateIs("unavailable")
+                .willReturn(WireMock.serviceUnavailable())
+                .willSetStateTo("available"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("retry tags")
+                .whenScenarioStateIs("available")
+                .willReturn(WireMock.okJson("{\"name\":\"retry-tags\",\"tags\":[\"latest\"]}")));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRetryPolicy(RetryPolicy.Builder.builder()
+                        .withInitialDelay(Duration.ofMillis(50))
+                        .build())
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/retry-tags".formatted(wmRuntimeInfo.getHttpPort()));
+        long start = System.nanoTime();
+        assertEquals(List.of("latest"), registry.getTags(containerRef));
+
+        // Waited at least the Retry-After
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 1000);
+        assertEquals(2, registry.getRetryCount());
+        wireMock.verifyThat(3, WireMock.getRequestedFor(WireMock.urlEqualTo(tagsUrl)));
+    }
+
+    @Test
+    void shouldRetryTransientFailuresAsync(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String tagsUrl = "/v2/library/retry-tags-async/tags/list";
+        String blobUrl = "/v2/library/retry-tags-async/blobs/%s"
+                .formatted(SupportedAlgorithm.SHA256.digest("blob".getBytes(StandardCharsets.UTF_8)));
+
+        // Rate limited, then ok
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("retry tags async")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.status(429).withHeader(Const.RETRY_AFTER_HEADER, "1"))
+                .willSetStateTo("available"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("retry tags async")
+                .whenScenarioStateIs("available")
+                .willReturn(WireMock.okJson("{\"name\":\"retry-tags-async\",\"tags\":[\"latest\"]}")));
+
+        // Connection reset, then ok
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .inScenario("retry blob async")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("available"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .inScenario("retry blob async")
+                .whenScenarioStateIs("available")
+                .willReturn(WireMock.ok("blob")));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRetryPolicy(RetryPolicy.Builder.builder()
+                        .withInitialDelay(Duration.ofMillis(50))
+                        .build())
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/retry-tags-async".formatted(wmRuntimeInfo.getHttpPort()));
+        long start = System.nanoTime();
+        assertEquals(List.of("latest"), registry.getTagsAsync(containerRef).get());
+
+        // Waited at least the Retry-After
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 1000);
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlEqualTo(tagsUrl)));
+
+        ContainerRef blobRef =
+                containerRef.withDigest(SupportedAlgorithm.SHA256.digest("blob".getBytes(StandardCharsets.UTF_8)));
+        try (InputStream is = registry.fetchBlobAsync(blobRef).get()) {
+            assertEquals("blob", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(2, registry.getRetryCount());
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlEqualTo(blobUrl)));
+    }
+
+    @Test
+    void shouldLimitRequestsPerRegistry(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String tagsUrl = "/v2/library/rate-limited/tags/list";
+
+        // Throttled once, then ok
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("rate limited")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.status(429).withHeader(Const.RETRY_AFTER_HEADER, "1"))
+                .willSetStateTo("ok"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("rate limited")
+                .whenScenarioStateIs("ok")
+                .willReturn(WireMock.okJson("{\"name\":\"rate-limited\",\"tags\":[\"latest\"]}")
+                        .withFixedDelay(100)));
+
+        RateLimiter rateLimiter =
+                RateLimiter.Builder.builder().withMaxInFlight(2).build();
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRateLimiter(rateLimiter)
+                .build();
+        String host = "localhost:%d".formatted(wmRuntimeInfo.getHttpPort());
+        ContainerRef containerRef = ContainerRef.parse("%s/library/rate-limited".formatted(host));
+        assertEquals(List.of("latest"), registry.getTags(containerRef));
+
+        // The rate was reduced after the 429
+        double rate = rateLimiter.getRate(host);
+        assertFalse(Double.isInfinite(rate));
+
+        // At most 2 requests in flight
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            long start = System.nanoTime();
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit(() -> registry.getTags(containerRef)));
+            }
+            for (Future<List<String>> future : futures) {
+                assertEquals(List.of("latest"), future.get());
+            }
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 300);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(rateLimiter.getRate(host) > rate);
+    }
+
+    @Test
+    void shouldNotDelayRequestsOnRemainingQuota(WireMockRuntimeInfo wmRuntimeInfo) {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // Docker Hub announces the remaining pulls of a 6 hours window
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/quota/tags/list"))
+                .willReturn(WireMock.okJson("{\"name\":\"quota\",\"tags\":[\"latest\"]}")
+                        .withHeader("ratelimit-limit", "100;w=21600")
+                        .withHeader("ratelimit-remaining", "76;w=21600")));
+
+        RateLimiter rateLimiter = RateLimiter.defaults();
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRateLimiter(rateLimiter)
+                .build();
+        String host = "localhost:%d".formatted(wmRuntimeInfo.getHttpPort());
+        ContainerRef containerRef = ContainerRef.parse("%s/library/quota".formatted(host));
+        assertEquals(List.of("latest"), registry.getTags(containerRef));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(List.of("latest"), registry.getTags(containerRef));
+        }
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(elapsed < 2000, "Elapsed " + elapsed);
+        assertTrue(Double.isInfinite(rateLimiter.getRate(host)));
+    }
+
+    @Test
+    void shouldFailFastWhenCircuitBreakerIsOpen(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String tagsUrl = "/v2/library/breaker/tags/list";
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("breaker")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("unavailable"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("breaker")
+                .whenScenarioStateIs("unavailable")
+                .willReturn(WireMock.serviceUnavailable())
+                .willSetStateTo("available"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl))
+                .inScenario("breaker")
+                .whenScenarioStateIs("available")
+                .willReturn(WireMock.okJson("{\"name\":\"breaker\",\"tags\":[\"latest\"]}")));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRetryPolicy(RetryPolicy.none())
+                .withCircuitBreaker(CircuitBreaker.Builder.builder()
+                        .withFailureThreshold(2)
+                        .withOpenDuration(Duration.ofMillis(500))
+                        .build())
+                .build();
+        String host = "localhost:%d".formatted(wmRuntimeInfo.getHttpPort());
+        ContainerRef containerRef = ContainerRef.parse("%s/library/breaker".formatted(host));
+        CircuitBreaker circuitBreaker = registry.getCircuitBreaker();
+
+        // Connection failure then 503 open the breaker
+        assertThrows(OrasException.class, () -> registry.getTags(containerRef));
+        assertThrows(OrasException.class, () -> registry.getTags(containerRef));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(host));
+
+        // Fail fast without request
+        assertThrows(OrasException.class, () -> registry.getTags(containerRef));
+        assertThrows(ExecutionException.class, () -> registry.getTagsAsync(containerRef)
+                .get());
+        assertEquals(2, circuitBreaker.getRejectedCount());
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlEqualTo(tagsUrl)));
+
+        // Closed after a successful trial
+        Thread.sleep(600);
+        assertEquals(List.of("latest"), registry.getTags(containerRef));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(host));
+    }
+
+    @Test
+    void shouldNotWrapCircuitBreakerErrorOfStreamUpload(WireMockRuntimeInfo wmRuntimeInfo) {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        wireMock.register(WireMock.put(WireMock.urlEqualTo("/upload/breaker"))
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        OrasHttpClient client = OrasHttpClient.Builder.builder()
+                .withCircuitBreaker(CircuitBreaker.Builder.builder()
+                        .withFailureThreshold(1)
+                        .withOpenDuration(Duration.ofMinutes(1))
+                        .build())
+                .build();
+        URI uri = URI.create("http://localhost:%d/upload/breaker".formatted(wmRuntimeInfo.getHttpPort()));
+
+        // The I/O failure is wrapped, the circuit breaker error is reported as is
+        OrasException failure = assertThrows(
+                OrasException.class,
+                () -> client.uploadStream("PUT", uri, new ByteArrayInputStream(new byte[] {1}), 1, Map.of()));
+        assertInstanceOf(IOException.class, failure.getCause());
+        OrasException open = assertThrows(
+                OrasException.class,
+                () -> client.uploadStream("PUT", uri, new ByteArrayInputStream(new byte[] {1}), 1, Map.of()));
+        assertTrue(open.getMessage().startsWith("Circuit breaker open"), open.getMessage());
+        assertNull(open.getCause());
+        wireMock.verifyThat(1, WireMock.putRequestedFor(WireMock.urlEqualTo("/upload/breaker")));
+    }
+
+    @Test
+    void shouldNotRetryWhenDisabledOrExhausted(WireMockRuntimeInfo wmRuntimeInfo) {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String tagsUrl = "/v2/library/retry-exhausted/tags/list";
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tagsUrl)).willReturn(WireMock.serviceUnavailable()));
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/retry-exhausted".formatted(wmRuntimeInfo.getHttpPort()));
+
+        Registry noRetry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRetryPolicy(RetryPolicy.none())
+                .build();
+        OrasException exception = assertThrows(OrasException.class, () -> noRetry.getTags(containerRef));
+        assertEquals(503, exception.getStatusCode());
+        assertEquals(0, noRetry.getRetryCount());
+        wireMock.verifyThat(1, WireMock.getRequestedFor(WireMock.urlEqualTo(tagsUrl)));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRetryPolicy(RetryPolicy.Builder.builder()
+                        .withMaxRetries(2)
+                        .withInitialDelay(Duration.ofMillis(10))
+                        .build())
+                .build();
+        exception = assertThrows(OrasException.class, () -> registry.getTags(containerRef));
+        assertEquals(503, exception.getStatusCode());
+        assertEquals(2, registry.getRetryCount());
+        wireMock.verifyThat(4, WireMock.getRequestedFor(WireMock.urlEqualTo(tagsUrl)));
     }
 
     @Test
@@ -316,6 +617,50 @@ public class RegistryWireMockTest {
         assertEquals("blob-data", new String(blob));
     }
 
+    @Test
+    void shouldFailWhenRealmFails(WireMockRuntimeInfo wmRuntimeInfo) {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String scope = "repository:library/realm-failure:pull";
+        String manifestUrl = "/v2/library/realm-failure/manifests/latest";
+        String tokenUrl = "/token?scope=%s&service=localhost".formatted(scope);
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(manifestUrl))
+                .willReturn(WireMock.unauthorized()
+                        .withHeader(
+                                Const.WWW_AUTHENTICATE_HEADER,
+                                "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"%s\""
+                                        .formatted(wmRuntimeInfo.getHttpPort(), scope))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(manifestUrl))
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer token"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().toJson())));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tokenUrl))
+                .willReturn(WireMock.unauthorized()
+                        .withBody("{\"errors\":[{\"code\":\"UNAUTHORIZED\",\"message\":\"bad credentials\"}]}")));
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/realm-failure".formatted(wmRuntimeInfo.getHttpPort()));
+
+        // The error of the realm is reported, not a token parsed from it
+        OrasException e = assertThrows(OrasException.class, () -> registry.getManifest(containerRef));
+        assertEquals(401, e.getStatusCode());
+        wireMock.verifyThat(
+                0,
+                WireMock.getRequestedFor(WireMock.urlEqualTo(manifestUrl))
+                        .withHeader(Const.AUTHORIZATION_HEADER, WireMock.matching("Bearer .*")));
+
+        // Nothing was cached from the failed response
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tokenUrl))
+                .willReturn(WireMock.okJson(JsonUtils.toJson(
+                        new BearerTokenProvider.TokenResponse("token", "token", 300, ZonedDateTime.now())))));
+        assertNotNull(registry.getManifest(containerRef));
+    }
+
     @Test
     void shouldRefreshExpiredToken(WireMockRuntimeInfo wmRuntimeInfo) {
 
@@ -356,4 +701,1666 @@ public class RegistryWireMockTest {
         byte[] blob = registry.getBlob(containerRef.withDigest(digest));
         assertEquals("blob-data", new String(blob));
     }
+
+    @Test
+    void shouldPushLayersConcurrentlyInOrder(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // No blob exists and every upload is accepted with a single POST
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/parallel-push/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/parallel-push/blobs/uploads/"))
+                .willReturn(WireMock.created()));
+
+        // First layer is the slowest to upload
+        Path file1 = configDir.resolve("file1.txt");
+        Path file2 = configDir.resolve("file2.txt");
+        Path file3 = configDir.resolve("file3.txt");
+        Files.writeString(file1, "file1");
+        Files.writeString(file2, "file2");
+        Files.writeString(file3, "file3");
+        wireMock.register(WireMock.post(WireMock.urlEqualTo("/v2/library/parallel-push/blobs/uploads/?digest=%s"
+                        .formatted(SupportedAlgorithm.SHA256.digest(file1))))
+                .willReturn(WireMock.created().withFixedDelay(500)));
+
+        // Manifest
+        wireMock.register(WireMock.put(WireMock.urlEqualTo("/v2/library/parallel-push/manifests/latest"))
+                .willReturn(WireMock.created()));
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/parallel-push/manifests/latest"))
+                .atPriority(10)
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().toJson())));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withParallelism(3).build();
+        assertEquals(3, registry.getParallelism());
+
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/parallel-push".formatted(wmRuntimeInfo.getHttpPort()));
+        registry.pushArtifact(containerRef, LocalPath.of(file1), LocalPath.of(file2), LocalPath.of(file3));
+
+        // Layers are in the order of the paths
+        String body = wireMock.find(
+                        WireMock.putRequestedFor(WireMock.urlEqualTo("/v2/library/parallel-push/manifests/latest")))
+                .get(0)
+                .getBodyAsString();
+        List<Layer> layers = Manifest.fromJson(body).getLayers();
+        assertEquals(3, layers.size());
+        assertEquals("file1.txt", layers.get(0).getAnnotations().get(Const.ANNOTATION_TITLE));
+        assertEquals("file2.txt", layers.get(1).getAnnotations().get(Const.ANNOTATION_TITLE));
+        assertEquals("file3.txt", layers.get(2).getAnnotations().get(Const.ANNOTATION_TITLE));
+    }
+
+    @Test
+    void shouldPushBlobToLocationWithoutQuery(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        Path file = configDir.resolve("no-query.txt");
+        Files.writeString(file, "file-data");
+        String fileDigest = SupportedAlgorithm.SHA256.digest(file);
+        byte[] data = "bytes-data".getBytes(StandardCharsets.UTF_8);
+        String dataDigest = SupportedAlgorithm.SHA256.digest(data);
+
+        // The registry requires a PUT on a location without query
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/no-query/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/no-query/blobs/uploads/"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/no-query")));
+        wireMock.register(
+                WireMock.put(WireMock.urlPathEqualTo("/upload/no-query")).willReturn(WireMock.created()));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/no-query".formatted(wmRuntimeInfo.getHttpPort()));
+        registry.pushBlob(containerRef, file);
+        registry.pushBlob(containerRef, data);
+
+        // The digest is the only query parameter of the location
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlEqualTo("/upload/no-query?digest=%s".formatted(fileDigest)))
+                        .withRequestBody(WireMock.equalTo("file-data")));
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlEqualTo("/upload/no-query?digest=%s".formatted(dataDigest)))
+                        .withRequestBody(WireMock.equalTo("bytes-data")));
+    }
+
+    @Test
+    void shouldPushArtifactWithDigestRef(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/digest-push/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/digest-push/blobs/uploads/"))
+                .willReturn(WireMock.created()));
+        wireMock.register(WireMock.put(WireMock.urlPathMatching("/v2/library/digest-push/manifests/.*"))
+                .willReturn(WireMock.created()));
+        wireMock.register(WireMock.any(WireMock.urlPathMatching("/v2/library/digest-push/manifests/.*"))
+                .atPriority(10)
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().toJson())));
+
+        Path file = configDir.resolve("digest-push.txt");
+        Files.writeString(file, "digest-push");
+        String manifestDigest = SupportedAlgorithm.SHA256.digest("manifest".getBytes(StandardCharsets.UTF_8));
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/digest-push@%s".formatted(wmRuntimeInfo.getHttpPort(), manifestDigest));
+        registry.pushArtifact(containerRef, LocalPath.of(file));
+
+        // The layer is pushed with its own digest, the manifest digest is never taken for a blob digest
+        wireMock.verifyThat(
+                0,
+                WireMock.headRequestedFor(
+                        WireMock.urlEqualTo("/v2/library/digest-push/blobs/%s".formatted(manifestDigest))));
+        wireMock.verifyThat(
+                1,
+                WireMock.postRequestedFor(WireMock.urlEqualTo("/v2/library/digest-push/blobs/uploads/?digest=%s"
+                        .formatted(SupportedAlgorithm.SHA256.digest(file)))));
+    }
+
+    @Test
+    void shouldFailConcurrentPushOnFirstLayerError(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/parallel-push-error/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/parallel-push-error/blobs/uploads/"))
+                .willReturn(WireMock.created().withFixedDelay(500)));
+
+        // Second layer fails
+        Path file1 = configDir.resolve("file1.txt");
+        Path file2 = configDir.resolve("file2.txt");
+        Files.writeString(file1, "file1");
+        Files.writeString(file2, "file2");
+        wireMock.register(WireMock.post(WireMock.urlEqualTo("/v2/library/parallel-push-error/blobs/uploads/?digest=%s"
+                        .formatted(SupportedAlgorithm.SHA256.digest(file2))))
+                .willReturn(WireMock.serverError()));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withParallelism(2).build();
+
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/parallel-push-error".formatted(wmRuntimeInfo.getHttpPort()));
+        OrasException exception = assertThrows(
+                OrasException.class,
+                () -> registry.pushArtifact(containerRef, LocalPath.of(file1), LocalPath.of(file2)));
+        assertEquals(500, exception.getStatusCode());
+
+        // Manifest never pushed
+        wireMock.verifyThat(
+                0, WireMock.putRequestedFor(WireMock.urlPathMatching("/v2/library/parallel-push-error/manifests/.*")));
+    }
+
+    @Test
+    void shouldPullLayersConcurrently(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // Three layers with file name
+        Path blobs = Files.createDirectory(configDir.resolve("blobs"));
+        List<Layer> layers = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Path file = blobs.resolve("file%d.txt".formatted(i));
+            Files.writeString(file, "file%d".formatted(i));
+            Layer layer = Layer.fromFile(file);
+            layers.add(layer);
+            wireMock.register(WireMock.any(
+                            WireMock.urlEqualTo("/v2/library/parallel-pull/blobs/%s".formatted(layer.getDigest())))
+                    .willReturn(WireMock.ok().withBody("file%d".formatted(i)).withFixedDelay(200)));
+        }
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/parallel-pull/manifests/latest"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().withLayers(layers).toJson())));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withParallelism(3).build();
+
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/parallel-pull".formatted(wmRuntimeInfo.getHttpPort()));
+        Path target = Files.createDirectory(configDir.resolve("target"));
+        registry.pullArtifact(containerRef, target, false);
+
+        assertEquals("file1", Files.readString(target.resolve("file1.txt")));
+        assertEquals("file2", Files.readString(target.resolve("file2.txt")));
+        assertEquals("file3", Files.readString(target.resolve("file3.txt")));
+        try (var files = Files.list(target)) {
+            assertEquals(3, files.count());
+        }
+
+        // Existing files are not overwritten
+        assertThrows(OrasException.class, () -> registry.pullArtifact(containerRef, target, false));
+        registry.pullArtifact(containerRef, target, true);
+    }
+
+    @Test
+    void shouldNotUnpackLayerWithWrongDigest(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // A valid directory archive served under a digest that doesn't match it
+        Path source = Files.createDirectories(configDir.resolve("unpack-source").resolve("dir"));
+        Files.writeString(source.resolve("file.txt"), "content");
+        LocalPath tar = ArchiveUtils.tar(LocalPath.of(source));
+        LocalPath archive = ArchiveUtils.compress(tar, Const.DEFAULT_BLOB_DIR_MEDIA_TYPE);
+        byte[] content = Files.readAllBytes(archive.getPath());
+        String wrongDigest = SupportedAlgorithm.SHA256.digest("other".getBytes(StandardCharsets.UTF_8));
+        Layer layer = Layer.fromDigest(wrongDigest, content.length)
+                .withMediaType(Const.DEFAULT_BLOB_DIR_MEDIA_TYPE)
+                .withAnnotations(Map.of(Const.ANNOTATION_TITLE, "dir", Const.ANNOTATION_ORAS_UNPACK, "true"));
+
+        wireMock.register(
+                WireMock.any(WireMock.urlEqualTo("/v2/library/unpack-mismatch/blobs/%s".formatted(wrongDigest)))
+                        .willReturn(WireMock.ok().withBody(content)));
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/unpack-mismatch/manifests/latest"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().withLayers(List.of(layer)).toJson())));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/unpack-mismatch".formatted(wmRuntimeInfo.getHttpPort()));
+        Path target = Files.createDirectory(configDir.resolve("unpack-target"));
+
+        OrasException e = assertThrows(OrasException.class, () -> registry.pullArtifact(containerRef, target, false));
+        assertTrue(e.getMessage().contains("Digest mismatch"), e.getMessage());
+        assertFalse(Files.exists(target.resolve("dir").resolve("file.txt")));
+    }
+
+    @Test
+    void shouldNotLeavePartialExtraction(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // A directory archive truncated in the middle of its content
+        Path source =
+                Files.createDirectories(configDir.resolve("truncated-source").resolve("dir"));
+        Files.writeString(source.resolve("small.txt"), "content");
+        Files.write(source.resolve("large.bin"), new byte[100_000]);
+        LocalPath tar = ArchiveUtils.tar(LocalPath.of(source));
+        byte[] tarContent = Files.readAllBytes(tar.getPath());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(tarContent, 0, tarContent.length / 2);
+        }
+        byte[] content = compressed.toByteArray();
+        String digest = SupportedAlgorithm.SHA256.digest(content);
+        Layer layer = Layer.fromDigest(digest, content.length)
+                .withMediaType(Const.DEFAULT_BLOB_DIR_MEDIA_TYPE)
+                .withAnnotations(Map.of(Const.ANNOTATION_TITLE, "dir", Const.ANNOTATION_ORAS_UNPACK, "true"));
+
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/unpack-truncated/blobs/%s".formatted(digest)))
+                .willReturn(WireMock.ok().withBody(content)));
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/unpack-truncated/manifests/latest"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().withLayers(List.of(layer)).toJson())));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/unpack-truncated".formatted(wmRuntimeInfo.getHttpPort()));
+        Path target = Files.createDirectory(configDir.resolve("truncated-target"));
+
+        // Nothing extracted before the failure is left in the target
+        assertThrows(OrasException.class, () -> registry.pullArtifact(containerRef, target, false));
+        try (Stream<Path> files = Files.list(target)) {
+            assertEquals(List.of(), files.toList());
+        }
+    }
+
+    @Test
+    void shouldPullLayersWithConfiguredExecutor(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        List<Layer> layers = new ArrayList<>();
+        Path blobs = Files.createDirectory(configDir.resolve("blobs"));
+        for (int i = 1; i <= 5; i++) {
+            Path file = blobs.resolve("file%d.txt".formatted(i));
+            Files.writeString(file, "file%d".formatted(i));
+            Layer layer = Layer.fromFile(file);
+            layers.add(layer);
+            wireMock.register(WireMock.any(
+                            WireMock.urlEqualTo("/v2/library/executor-pull/blobs/%s".formatted(layer.getDigest())))
+                    .willReturn(WireMock.ok().withBody("file%d".formatted(i)).withFixedDelay(100)));
+        }
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/executor-pull/manifests/latest"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().withLayers(layers).toJson())));
+
+        // Count the tasks run by the executor
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService threads = Executors.newCachedThreadPool();
+        Executor executor = task -> {
+            tasks.incrementAndGet();
+            threads.execute(task);
+        };
+        try {
+            Registry registry = Registry.Builder.builder()
+                    .withInsecure(true)
+                    .withParallelism(2)
+                    .withExecutor(executor)
+                    .build();
+            assertEquals(executor, registry.getExecutor());
+            ContainerRef containerRef =
+                    ContainerRef.parse("localhost:%d/library/executor-pull".formatted(wmRuntimeInfo.getHttpPort()));
+            Path target = Files.createDirectory(configDir.resolve("target"));
+            registry.pullArtifactAsync(containerRef, target, false).get();
+
+            for (int i = 1; i <= 5; i++) {
+                assertEquals("file%d".formatted(i), Files.readString(target.resolve("file%d.txt".formatted(i))));
+            }
+
+            // The pull itself and its layers at least
+            assertTrue(tasks.get() >= 6, "Tasks: " + tasks.get());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldCleanupPartialFilesWhenPullFails(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        Path blobs = Files.createDirectory(configDir.resolve("blobs"));
+        Path file1 = blobs.resolve("file1.txt");
+        Path file2 = blobs.resolve("file2.txt");
+        Files.writeString(file1, "file1");
+        Files.writeString(file2, "file2");
+        Layer layer1 = Layer.fromFile(file1);
+        Layer layer2 = Layer.fromFile(file2);
+
+        // First blob is fine, second one fails
+        wireMock.register(WireMock.any(
+                        WireMock.urlEqualTo("/v2/library/parallel-pull-error/blobs/%s".formatted(layer1.getDigest())))
+                .willReturn(WireMock.ok().withBody("file1")));
+        wireMock.register(WireMock.any(
+                        WireMock.urlEqualTo("/v2/library/parallel-pull-error/blobs/%s".formatted(layer2.getDigest())))
+                .willReturn(WireMock.aResponse().withStatus(200).withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/parallel-pull-error/manifests/latest"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty()
+                                .withLayers(List.of(layer1, layer2))
+                                .toJson())));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withParallelism(2).build();
+
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/parallel-pull-error".formatted(wmRuntimeInfo.getHttpPort()));
+        Path target = Files.createDirectory(configDir.resolve("target"));
+        assertThrows(OrasException.class, () -> registry.pullArtifact(containerRef, target, true));
+
+        // No partial file left behind
+        try (var files = Files.list(target)) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().endsWith(".part")));
+        }
+    }
+
+    @Test
+    void shouldCopyArtifactWithReferrers(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // Source artifact
+        Path file = configDir.resolve("copy.txt");
+        Files.writeString(file, "layer-data");
+        Layer layer = Layer.fromFile(file);
+        String manifestJson = Manifest.empty().withLayers(List.of(layer)).toJson();
+        String manifestDigest = SupportedAlgorithm.SHA256.digest(manifestJson.getBytes(StandardCharsets.UTF_8));
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/copy-source/manifests/latest"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withHeader(Const.DOCKER_CONTENT_DIGEST_HEADER, manifestDigest)
+                        .withBody(manifestJson)));
+        wireMock.register(
+                WireMock.any(WireMock.urlEqualTo("/v2/library/copy-source/blobs/%s".formatted(layer.getDigest())))
+                        .willReturn(WireMock.ok().withBody("layer-data")));
+
+        // Referrer of the source artifact
+        String referrerJson = Manifest.empty()
+                .withArtifactType(ArtifactType.from("application/vnd.test"))
+                .withSubject(
+                        ManifestDescriptor.of(Const.DEFAULT_MANIFEST_MEDIA_TYPE, manifestDigest, manifestJson.length())
+                                .toSubject())
+                .toJson();
+        String referrerDigest = SupportedAlgorithm.SHA256.digest(referrerJson.getBytes(StandardCharsets.UTF_8));
+        wireMock.register(
+                WireMock.get(WireMock.urlEqualTo("/v2/library/copy-source/referrers/%s".formatted(manifestDigest)))
+                        .willReturn(WireMock.okJson(
+                                """
+                        {"mediaType":"%s","manifests":[{"mediaType":"%s","digest":"%s","size":%d}]}
+                        """
+                                        .formatted(
+                                                Const.DEFAULT_INDEX_MEDIA_TYPE,
+                                                Const.DEFAULT_MANIFEST_MEDIA_TYPE,
+                                                referrerDigest,
+                                                referrerJson.length()))));
+        wireMock.register(
+                WireMock.any(WireMock.urlEqualTo("/v2/library/copy-source/manifests/%s".formatted(referrerDigest)))
+                        .willReturn(WireMock.ok()
+                                .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                                .withHeader(Const.DOCKER_CONTENT_DIGEST_HEADER, referrerDigest)
+                                .withBody(referrerJson)));
+        wireMock.register(
+                WireMock.get(WireMock.urlEqualTo("/v2/library/copy-source/referrers/%s".formatted(referrerDigest)))
+                        .willReturn(WireMock.okJson("{\"manifests\":[]}")));
+
+        // Target has the config but not the layer
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/copy-target/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.head(WireMock.urlEqualTo("/v2/library/copy-target/blobs/%s"
+                        .formatted(Config.empty().getDigest())))
+                .willReturn(WireMock.ok()));
+        // Same registry, but mount is not supported
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/copy-target/blobs/uploads/"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(202)
+                        .withHeader(Const.LOCATION_HEADER, "/v2/library/copy-target/blobs/uploads/session")));
+        wireMock.register(WireMock.put(WireMock.urlPathEqualTo("/v2/library/copy-target/blobs/uploads/session"))
+                .willReturn(WireMock.created()));
+        wireMock.register(WireMock.put(WireMock.urlPathMatching("/v2/library/copy-target/manifests/.*"))
+                .willReturn(WireMock.created()));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withParallelism(2).build();
+        ContainerRef source =
+                ContainerRef.parse("localhost:%d/library/copy-source".formatted(wmRuntimeInfo.getHttpPort()));
+        ContainerRef target =
+                ContainerRef.parse("localhost:%d/library/copy-target".formatted(wmRuntimeInfo.getHttpPort()));
+        registry.copy(registry, source, target, true);
+
+        // Only the missing layer was streamed to the target
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlEqualTo(
+                                "/v2/library/copy-target/blobs/uploads/session?digest=%s".formatted(layer.getDigest())))
+                        .withRequestBody(WireMock.equalTo("layer-data")));
+        wireMock.verifyThat(
+                0,
+                WireMock.getRequestedFor(WireMock.urlEqualTo("/v2/library/copy-source/blobs/%s"
+                        .formatted(Config.empty().getDigest()))));
+
+        // Manifests are copied as is
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlEqualTo("/v2/library/copy-target/manifests/latest"))
+                        .withHeader(Const.CONTENT_TYPE_HEADER, WireMock.equalTo(Const.DEFAULT_MANIFEST_MEDIA_TYPE))
+                        .withRequestBody(WireMock.equalTo(manifestJson)));
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(
+                                WireMock.urlEqualTo("/v2/library/copy-target/manifests/%s".formatted(referrerDigest)))
+                        .withRequestBody(WireMock.equalTo(referrerJson)));
+    }
+
+    @Test
+    void shouldMountBlobOnSameRegistry(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // Source artifact with a single layer
+        Path file = configDir.resolve("mount.txt");
+        Files.writeString(file, "mount-data");
+        Layer layer = Layer.fromFile(file);
+        String manifestJson = Manifest.empty().withLayers(List.of(layer)).toJson();
+        String manifestDigest = SupportedAlgorithm.SHA256.digest(manifestJson.getBytes(StandardCharsets.UTF_8));
+        wireMock.register(WireMock.any(WireMock.urlEqualTo("/v2/library/mount-source/manifests/latest"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withHeader(Const.DOCKER_CONTENT_DIGEST_HEADER, manifestDigest)
+                        .withBody(manifestJson)));
+
+        // Target mounts every blob
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/mount-target/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/mount-target/blobs/uploads/"))
+                .withQueryParam("from", WireMock.equalTo("library/mount-source"))
+                .willReturn(WireMock.created()));
+        wireMock.register(WireMock.put(WireMock.urlEqualTo("/v2/library/mount-target/manifests/latest"))
+                .willReturn(WireMock.created()));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef source =
+                ContainerRef.parse("localhost:%d/library/mount-source".formatted(wmRuntimeInfo.getHttpPort()));
+        ContainerRef target =
+                ContainerRef.parse("localhost:%d/library/mount-target".formatted(wmRuntimeInfo.getHttpPort()));
+        registry.copy(registry, source, target);
+
+        // No blob content transferred
+        wireMock.verifyThat(
+                1,
+                WireMock.postRequestedFor(
+                        WireMock.urlEqualTo("/v2/library/mount-target/blobs/uploads/?mount=%s&from=library/mount-source"
+                                .formatted(layer.getDigest()))));
+        wireMock.verifyThat(0, WireMock.getRequestedFor(WireMock.urlPathMatching("/v2/library/mount-source/blobs/.*")));
+        wireMock.verifyThat(0, WireMock.putRequestedFor(WireMock.urlPathMatching("/v2/library/mount-target/blobs/.*")));
+
+        // Explicit mount
+        assertTrue(registry.mountBlob(source.withDigest(layer.getDigest()), target));
+    }
+
+    @Test
+    void shouldPushBlobWithMountSource(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        Path mounted = configDir.resolve("mounted.txt");
+        Files.writeString(mounted, "mounted-data");
+        String mountedDigest = SupportedAlgorithm.SHA256.digest(mounted);
+        Path uploaded = configDir.resolve("uploaded.txt");
+        Files.writeString(uploaded, "uploaded-data");
+        String uploadedDigest = SupportedAlgorithm.SHA256.digest(uploaded);
+
+        // The registry mounts the first blob, but starts an upload session for the second one
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/push-mount-target/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/uploads/"))
+                .withQueryParam("mount", WireMock.equalTo(mountedDigest))
+                .willReturn(WireMock.created()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/uploads/"))
+                .withQueryParam("mount", WireMock.equalTo(uploadedDigest))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(202)
+                        .withHeader(Const.LOCATION_HEADER, "/v2/library/push-mount-target/blobs/uploads/session")));
+        wireMock.register(WireMock.put(WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/uploads/session"))
+                .willReturn(WireMock.created()));
+        wireMock.register(
+                WireMock.delete(WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/uploads/session"))
+                        .willReturn(WireMock.noContent()));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef source =
+                ContainerRef.parse("localhost:%d/library/push-mount-source".formatted(wmRuntimeInfo.getHttpPort()));
+        ContainerRef target =
+                ContainerRef.parse("localhost:%d/library/push-mount-target".formatted(wmRuntimeInfo.getHttpPort()));
+
+        // Mounted without transferring the content
+        Layer layer = registry.pushBlob(target, mounted, Map.of(), source);
+        assertEquals(mountedDigest, layer.getDigest());
+
+        // The stream is never drained to count the size of a mounted blob
+        try (InputStream is = new ByteArrayInputStream("mounted-data".getBytes(StandardCharsets.UTF_8))) {
+            OrasException e = assertThrows(
+                    OrasException.class, () -> registry.pushBlob(target.withDigest(mountedDigest), is, source));
+            assertTrue(e.getMessage().startsWith("Unknown size of mounted blob"));
+            assertEquals(12, is.available());
+        }
+        wireMock.register(WireMock.head(
+                        WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/%s".formatted(mountedDigest)))
+                .inScenario("mounted")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.notFound())
+                .willSetStateTo("mounted"));
+        wireMock.register(WireMock.head(
+                        WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/%s".formatted(mountedDigest)))
+                .inScenario("mounted")
+                .whenScenarioStateIs("mounted")
+                .willReturn(WireMock.ok().withHeader(Const.CONTENT_LENGTH_HEADER, "12")));
+        try (InputStream is = new ByteArrayInputStream("mounted-data".getBytes(StandardCharsets.UTF_8))) {
+            assertEquals(
+                    12,
+                    registry.pushBlob(target.withDigest(mountedDigest), is, source)
+                            .getSize());
+            assertEquals(12, is.available());
+        }
+        wireMock.verifyThat(
+                0, WireMock.putRequestedFor(WireMock.urlPathMatching("/v2/library/push-mount-target/blobs/.*")));
+
+        // Uploaded in the session started instead of the mount
+        layer = registry.pushBlob(target, uploaded, Map.of(), source);
+        assertEquals(uploadedDigest, layer.getDigest());
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(
+                                WireMock.urlEqualTo("/v2/library/push-mount-target/blobs/uploads/session?digest=%s"
+                                        .formatted(uploadedDigest)))
+                        .withRequestBody(WireMock.equalTo("uploaded-data")));
+        wireMock.verifyThat(
+                4, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/uploads/")));
+        wireMock.verifyThat(
+                0,
+                WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/uploads/"))
+                        .withQueryParam("mount", WireMock.absent()));
+
+        // A mount that is not performed doesn't leave the upload session open
+        assertFalse(registry.mountBlob(source.withDigest(uploadedDigest), target));
+        wireMock.verifyThat(
+                1,
+                WireMock.deleteRequestedFor(
+                        WireMock.urlPathEqualTo("/v2/library/push-mount-target/blobs/uploads/session")));
+    }
+
+    @Test
+    void shouldFetchBlobsWithoutHeadRequest(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        int blobs = 10;
+        List<String> digests = new ArrayList<>();
+        for (int i = 0; i < blobs; i++) {
+            String data = "blob-%d".formatted(i);
+            String digest = SupportedAlgorithm.SHA256.digest(data.getBytes(StandardCharsets.UTF_8));
+            digests.add(digest);
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/fetch-blob/blobs/%s".formatted(digest)))
+                    .willReturn(WireMock.ok()
+                            .withHeader(Const.DOCKER_CONTENT_DIGEST_HEADER, digest)
+                            .withBody(data)));
+        }
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/fetch-blob".formatted(wmRuntimeInfo.getHttpPort()));
+
+        // Half via stream, half via file
+        for (int i = 0; i < blobs; i++) {
+            ContainerRef blobRef = containerRef.withDigest(digests.get(i));
+            if (i % 2 == 0) {
+                try (InputStream is = registry.fetchBlob(blobRef)) {
+                    assertEquals("blob-%d".formatted(i), new String(is.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            } else {
+                Path file = configDir.resolve("blob-%d".formatted(i));
+                Descriptor descriptor = registry.fetchBlob(blobRef, file);
+                assertEquals("blob-%d".formatted(i), Files.readString(file));
+                assertEquals(digests.get(i), descriptor.getDigest());
+                assertEquals(Files.size(file), descriptor.getSize());
+            }
+        }
+
+        // One round-trip per blob
+        wireMock.verifyThat(0, WireMock.headRequestedFor(WireMock.urlPathMatching("/v2/library/fetch-blob/blobs/.*")));
+        wireMock.verifyThat(
+                blobs, WireMock.getRequestedFor(WireMock.urlPathMatching("/v2/library/fetch-blob/blobs/.*")));
+        LOG.info("Fetched {} blobs with {} requests", blobs, blobs);
+    }
+
+    @Test
+    void shouldVerifyStreamedBlobAtEnd(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        byte[] data = "blob".getBytes(StandardCharsets.UTF_8);
+        String digest = SupportedAlgorithm.SHA256.digest(data);
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/tampered-blob/blobs/%s".formatted(digest)))
+                .willReturn(WireMock.ok().withBody("tampered")));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/tampered-blob@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+
+        // Stream is verified once fully read
+        try (InputStream is = registry.fetchBlob(containerRef)) {
+            OrasException e = assertThrows(OrasException.class, is::readAllBytes);
+            assertTrue(e.getMessage().startsWith("Digest mismatch"));
+        }
+        try (InputStream is = registry.fetchBlobAsync(containerRef).get()) {
+            assertThrows(OrasException.class, is::readAllBytes);
+        }
+        assertThrows(OrasException.class, () -> registry.getBlob(containerRef));
+    }
+
+    @Test
+    void shouldNotLeaveFileWhenBlobNotFound(WireMockRuntimeInfo wmRuntimeInfo) {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String digest = SupportedAlgorithm.SHA256.digest("missing".getBytes(StandardCharsets.UTF_8));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/missing-blob/blobs/%s".formatted(digest)))
+                .willReturn(WireMock.notFound().withBody("{\"code\":\"BLOB_UNKNOWN\",\"message\":\"blob unknown\"}")));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/missing-blob@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+
+        Path file = configDir.resolve("missing");
+        OrasException e = assertThrows(OrasException.class, () -> registry.fetchBlob(containerRef, file));
+        assertEquals(404, e.getStatusCode());
+        assertFalse(Files.exists(file));
+
+        e = assertThrows(OrasException.class, () -> registry.fetchBlob(containerRef));
+        assertEquals(404, e.getStatusCode());
+        assertNotNull(e.getError());
+        assertEquals("BLOB_UNKNOWN", e.getError().code());
+    }
+
+    @Test
+    void shouldResolveManifestWithSingleRequest(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        Path file = configDir.resolve("resolve.txt");
+        Files.writeString(file, "resolve-data");
+        Layer layer = Layer.fromFile(file);
+        String manifestJson = Manifest.empty().withLayers(List.of(layer)).toJson();
+        String manifestDigest = SupportedAlgorithm.SHA256.digest(manifestJson.getBytes(StandardCharsets.UTF_8));
+
+        // Token challenge on the first GET
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/resolve-manifest/manifests/latest"))
+                .inScenario("resolve")
+                .willReturn(WireMock.unauthorized()
+                        .withHeader(
+                                Const.WWW_AUTHENTICATE_HEADER,
+                                "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"repository:library/resolve-manifest:pull\""
+                                        .formatted(wmRuntimeInfo.getHttpPort()))));
+        wireMock.register(WireMock.any(
+                        WireMock.urlEqualTo("/token?scope=repository:library/resolve-manifest:pull&service=localhost"))
+                .inScenario("resolve")
+                .willSetStateTo("resolved")
+                .willReturn(WireMock.okJson(JsonUtils.toJson(new BearerTokenProvider.TokenResponse(
+                        "fake-token", "access-token", 300, ZonedDateTime.now())))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/resolve-manifest/manifests/latest"))
+                .inScenario("resolve")
+                .whenScenarioStateIs("resolved")
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withHeader(Const.DOCKER_CONTENT_DIGEST_HEADER, manifestDigest)
+                        .withBody(manifestJson)));
+        wireMock.register(
+                WireMock.get(WireMock.urlEqualTo("/v2/library/resolve-manifest/blobs/%s".formatted(layer.getDigest())))
+                        .willReturn(WireMock.ok().withBody("resolve-data")));
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/resolve-manifest".formatted(wmRuntimeInfo.getHttpPort()));
+        Path target = Files.createDirectory(configDir.resolve("resolved"));
+        registry.pullArtifact(containerRef, target, false);
+        assertEquals("resolve-data", Files.readString(target.resolve("resolve.txt")));
+
+        // Body, content type, digest and size from the same GET
+        Manifest manifest = registry.getManifest(containerRef);
+        assertEquals(manifestDigest, manifest.getDescriptor().getDigest());
+        assertEquals(manifestJson.length(), manifest.getDescriptor().getSize());
+        assertEquals(Const.DEFAULT_MANIFEST_MEDIA_TYPE, manifest.getDescriptor().getMediaType());
+
+        // Challenge, then one GET for the pull and one for the manifest
+        wireMock.verifyThat(
+                0, WireMock.headRequestedFor(WireMock.urlPathMatching("/v2/library/resolve-manifest/manifests/.*")));
+        wireMock.verifyThat(
+                3, WireMock.getRequestedFor(WireMock.urlPathMatching("/v2/library/resolve-manifest/manifests/.*")));
+    }
+
+    @Test
+    void shouldReuseTokenPerScope(WireMockRuntimeInfo wmRuntimeInfo) {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String manifestJson = Manifest.empty().toJson();
+        for (String repository : List.of("token-a", "token-b")) {
+            String scope = "repository:library/%s:pull".formatted(repository);
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/%s/manifests/latest".formatted(repository)))
+                    .atPriority(5)
+                    .willReturn(WireMock.unauthorized()
+                            .withHeader(
+                                    Const.WWW_AUTHENTICATE_HEADER,
+                                    "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"%s\""
+                                            .formatted(wmRuntimeInfo.getHttpPort(), scope))));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/%s/manifests/latest".formatted(repository)))
+                    .atPriority(1)
+                    .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer " + repository))
+                    .willReturn(WireMock.ok()
+                            .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                            .withBody(manifestJson)));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/token?scope=%s&service=localhost".formatted(scope)))
+                    .willReturn(WireMock.okJson(JsonUtils.toJson(
+                            new BearerTokenProvider.TokenResponse(repository, repository, 300, ZonedDateTime.now())))));
+        }
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ContainerRef first = ContainerRef.parse("localhost:%d/library/token-a".formatted(wmRuntimeInfo.getHttpPort()));
+        ContainerRef second = ContainerRef.parse("localhost:%d/library/token-b".formatted(wmRuntimeInfo.getHttpPort()));
+        for (int i = 0; i < 3; i++) {
+            registry.getManifest(first);
+            registry.getManifest(second);
+        }
+
+        // One challenge and one token per scope, then the cached token of each repository is used
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/token")));
+        wireMock.verifyThat(4, WireMock.getRequestedFor(WireMock.urlEqualTo("/v2/library/token-a/manifests/latest")));
+        wireMock.verifyThat(4, WireMock.getRequestedFor(WireMock.urlEqualTo("/v2/library/token-b/manifests/latest")));
+    }
+
+    @Test
+    void shouldRequestOneTokenForConcurrentChallenges(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String manifestJson = Manifest.empty().toJson();
+        for (String repository : List.of("flight-a", "flight-b")) {
+            String scope = "repository:library/%s:pull".formatted(repository);
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/%s/manifests/latest".formatted(repository)))
+                    .atPriority(5)
+                    .willReturn(WireMock.unauthorized()
+                            .withHeader(
+                                    Const.WWW_AUTHENTICATE_HEADER,
+                                    "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"%s\""
+                                            .formatted(wmRuntimeInfo.getHttpPort(), scope))));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/%s/manifests/latest".formatted(repository)))
+                    .atPriority(1)
+                    .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer " + repository))
+                    .willReturn(WireMock.ok()
+                            .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                            .withBody(manifestJson)));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/token?scope=%s&service=localhost".formatted(scope)))
+                    .willReturn(WireMock.okJson(JsonUtils.toJson(new BearerTokenProvider.TokenResponse(
+                                    repository, repository, 300, ZonedDateTime.now())))
+                            .withFixedDelay(500)));
+        }
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // First challenge switch to the token flow, second one refresh the token for another scope
+            for (String repository : List.of("flight-a", "flight-b")) {
+                ContainerRef containerRef = ContainerRef.parse(
+                        "localhost:%d/library/%s".formatted(wmRuntimeInfo.getHttpPort(), repository));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Manifest>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return registry.getManifest(containerRef);
+                    }));
+                }
+                start.countDown();
+                for (Future<Manifest> future : futures) {
+                    assertNotNull(future.get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(
+                        WireMock.urlEqualTo("/token?scope=repository:library/flight-a:pull&service=localhost")));
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(
+                        WireMock.urlEqualTo("/token?scope=repository:library/flight-b:pull&service=localhost")));
+    }
+
+    @Test
+    void shouldRequestNewTokenWhenCachedTokenRejected(WireMockRuntimeInfo wmRuntimeInfo) {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String scope = "repository:library/revoked-token:pull";
+        String manifestUrl = "/v2/library/revoked-token/manifests/latest";
+        String tokenUrl = "/token?scope=%s&service=localhost".formatted(scope);
+        String challenge = "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"%s\""
+                .formatted(wmRuntimeInfo.getHttpPort(), scope);
+
+        // Only the current token is accepted, the first one is revoked after its first use
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(manifestUrl))
+                .atPriority(5)
+                .willReturn(WireMock.unauthorized().withHeader(Const.WWW_AUTHENTICATE_HEADER, challenge)));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(manifestUrl))
+                .atPriority(1)
+                .inScenario("revoked token")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer first"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().toJson()))
+                .willSetStateTo("revoked"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(manifestUrl))
+                .atPriority(1)
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer second"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().toJson())));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tokenUrl))
+                .inScenario("token")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.okJson(JsonUtils.toJson(
+                        new BearerTokenProvider.TokenResponse("first", "first", 300, ZonedDateTime.now()))))
+                .willSetStateTo("second"));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(tokenUrl))
+                .inScenario("token")
+                .whenScenarioStateIs("second")
+                .willReturn(WireMock.okJson(JsonUtils.toJson(
+                        new BearerTokenProvider.TokenResponse("second", "second", 300, ZonedDateTime.now())))));
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(new BearerTokenProvider(authProvider)) // Already bearer token
+                .withInsecure(true)
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/revoked-token".formatted(wmRuntimeInfo.getHttpPort()));
+        assertNotNull(registry.getManifest(containerRef));
+        assertNotNull(registry.getManifest(containerRef));
+
+        // The challenge of a request sent with the cached token is not answered with the same token
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlEqualTo(tokenUrl)));
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(WireMock.urlEqualTo(manifestUrl))
+                        .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer second")));
+    }
+
+    @Test
+    void shouldShareRegistryAcrossThreads(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        List<String> repositories = List.of("shared-a", "shared-b", "shared-c", "shared-d");
+        for (String repository : repositories) {
+            String scope = "repository:library/%s:pull".formatted(repository);
+            String digest = SupportedAlgorithm.SHA256.digest(repository.getBytes(StandardCharsets.UTF_8));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/%s/blobs/%s".formatted(repository, digest)))
+                    .atPriority(5)
+                    .willReturn(WireMock.unauthorized()
+                            .withHeader(
+                                    Const.WWW_AUTHENTICATE_HEADER,
+                                    "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"%s\""
+                                            .formatted(wmRuntimeInfo.getHttpPort(), scope))));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/%s/blobs/%s".formatted(repository, digest)))
+                    .atPriority(1)
+                    .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer " + repository))
+                    .willReturn(WireMock.ok().withBody(repository)));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/token?scope=%s&service=localhost".formatted(scope)))
+                    .willReturn(WireMock.okJson(JsonUtils.toJson(
+                            new BearerTokenProvider.TokenResponse(repository, repository, 300, ZonedDateTime.now())))));
+        }
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String repository = repositories.get(i % repositories.size());
+                futures.add(executor.submit(() -> {
+                    ContainerRef containerRef = ContainerRef.parse("localhost:%d/library/%s@%s"
+                            .formatted(
+                                    wmRuntimeInfo.getHttpPort(),
+                                    repository,
+                                    SupportedAlgorithm.SHA256.digest(repository.getBytes(StandardCharsets.UTF_8))));
+                    assertEquals(repository, new String(registry.getBlob(containerRef), StandardCharsets.UTF_8));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Tokens are shared, at most one request per thread and repository when challenged at the same time
+        for (String repository : repositories) {
+            int tokenRequests = wireMock.find(WireMock.getRequestedFor(WireMock.urlEqualTo(
+                            "/token?scope=repository:library/%s:pull&service=localhost".formatted(repository))))
+                    .size();
+            assertTrue(tokenRequests >= 1 && tokenRequests <= 16, "Token requests: " + tokenRequests);
+        }
+    }
+
+    @Test
+    void shouldExecuteAsync(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String manifestJson = Manifest.empty().toJson();
+        String blobDigest = SupportedAlgorithm.SHA256.digest("async-data".getBytes(StandardCharsets.UTF_8));
+        String scope = "repository:library/artifact-async:pull";
+
+        // Token challenge without the token
+        wireMock.register(WireMock.any(WireMock.urlPathMatching("/v2/library/artifact-async/.*"))
+                .atPriority(5)
+                .willReturn(WireMock.unauthorized()
+                        .withHeader(
+                                Const.WWW_AUTHENTICATE_HEADER,
+                                "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"%s\""
+                                        .formatted(wmRuntimeInfo.getHttpPort(), scope))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/token?scope=%s&service=localhost".formatted(scope)))
+                .willReturn(WireMock.okJson(JsonUtils.toJson(new BearerTokenProvider.TokenResponse(
+                        "async-token", "async-token", 300, ZonedDateTime.now())))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/artifact-async/manifests/latest"))
+                .atPriority(1)
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer async-token"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(manifestJson)));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/artifact-async/tags/list"))
+                .atPriority(1)
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer async-token"))
+                .willReturn(WireMock.okJson("{\"name\":\"artifact-async\",\"tags\":[\"latest\",\"0.1.0\"]}")));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/artifact-async/blobs/%s".formatted(blobDigest)))
+                .atPriority(1)
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer async-token"))
+                .willReturn(WireMock.temporaryRedirect(
+                        "http://localhost:%d/storage/async-data".formatted(wmRuntimeInfo.getHttpPort()))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/storage/async-data"))
+                .willReturn(WireMock.ok().withBody("async-data")));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/artifact-async/manifests/missing"))
+                .atPriority(1)
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer async-token"))
+                .willReturn(WireMock.notFound()));
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/artifact-async".formatted(wmRuntimeInfo.getHttpPort()));
+
+        // Compose calls, the first one is challenged
+        Manifest manifest = registry.getManifestAsync(containerRef)
+                .thenCombine(registry.getTagsAsync(containerRef), (m, tags) -> {
+                    assertEquals(List.of("latest", "0.1.0"), tags);
+                    return m;
+                })
+                .get();
+        assertEquals(manifestJson.length(), manifest.getDescriptor().getSize());
+        try (InputStream is =
+                registry.fetchBlobAsync(containerRef.withDigest(blobDigest)).get()) {
+            assertEquals("async-data", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Errors complete the future exceptionally
+        ExecutionException e =
+                assertThrows(ExecutionException.class, () -> registry.getManifestAsync(ContainerRef.parse(
+                                "localhost:%d/library/artifact-async:missing".formatted(wmRuntimeInfo.getHttpPort())))
+                        .get());
+        assertInstanceOf(OrasException.class, e.getCause());
+        e = assertThrows(ExecutionException.class, () -> registry.getReferrersAsync(containerRef, null)
+                .get());
+        assertInstanceOf(OrasException.class, e.getCause());
+    }
+
+    @Test
+    void shouldTimeoutSlowRequest(WireMockRuntimeInfo wmRuntimeInfo) {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/slow-tags/tags/list"))
+                .willReturn(WireMock.okJson("{\"name\":\"slow-tags\",\"tags\":[\"latest\"]}")
+                        .withFixedDelay(2000)));
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/slow-tags".formatted(wmRuntimeInfo.getHttpPort()));
+
+        // Response slower than the request timeout
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withRetryPolicy(RetryPolicy.none())
+                .withHttpVersion(HttpClient.Version.HTTP_1_1)
+                .withConnectTimeout(5)
+                .withRequestTimeout(1)
+                .build();
+        OrasException exception = assertThrows(OrasException.class, () -> registry.getTags(containerRef));
+        assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+
+        // No request timeout by default
+        Registry defaultRegistry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withHttpVersion(HttpClient.Version.HTTP_1_1)
+                .build();
+        assertEquals(List.of("latest"), defaultRegistry.getTags(containerRef));
+
+        assertThrows(OrasException.class, () -> Registry.Builder.builder().withRequestTimeout(0));
+    }
+
+    @Test
+    void shouldNotChangeRegistryWhenReusingBuilder() {
+        Registry.Builder builder = Registry.Builder.builder().withChunkSize(1024);
+        Registry registry = builder.build();
+        builder.withChunkSize(2048).withInsecure(true);
+        assertEquals(1024, registry.getChunkSize());
+        assertEquals("https", registry.getScheme());
+        assertEquals(2048, builder.build().getChunkSize());
+    }
+
+    @Test
+    void shouldBuildNewHttpClientEachTime(WireMockRuntimeInfo wmRuntimeInfo) {
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/")).willReturn(WireMock.ok()));
+        URI uri = URI.create("%s/v2/".formatted(wmRuntimeInfo.getHttpBaseUrl()));
+
+        OrasHttpClient.Builder builder =
+                OrasHttpClient.Builder.builder().withAuthentication(new UsernamePasswordProvider("first", "secret"));
+        OrasHttpClient first = builder.build();
+        OrasHttpClient second = builder.withAuthentication(new UsernamePasswordProvider("second", "secret"))
+                .build();
+        assertNotSame(first, second);
+
+        // Each client keeps the configuration it was built with and its own authentication
+        second.updateAuthentication(new UsernamePasswordProvider("updated", "secret"));
+        first.get(uri, Map.of());
+        second.get(uri, Map.of());
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(WireMock.urlEqualTo("/v2/"))
+                        .withHeader(
+                                Const.AUTHORIZATION_HEADER,
+                                WireMock.equalTo(
+                                        "Basic " + Base64.getEncoder().encodeToString("first:secret".getBytes()))));
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(WireMock.urlEqualTo("/v2/"))
+                        .withHeader(
+                                Const.AUTHORIZATION_HEADER,
+                                WireMock.equalTo(
+                                        "Basic " + Base64.getEncoder().encodeToString("updated:secret".getBytes()))));
+    }
+
+    @Test
+    void shouldRefreshTokenBeforeExpiry(WireMockRuntimeInfo wmRuntimeInfo) throws InterruptedException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String scope = "repository:library/token-expiry:pull";
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/token-expiry/manifests/latest"))
+                .atPriority(5)
+                .willReturn(WireMock.unauthorized()
+                        .withHeader(
+                                Const.WWW_AUTHENTICATE_HEADER,
+                                "Bearer realm=\"http://localhost:%d/token\",service=\"localhost\",scope=\"%s\""
+                                        .formatted(wmRuntimeInfo.getHttpPort(), scope))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/v2/library/token-expiry/manifests/latest"))
+                .atPriority(1)
+                .withHeader(Const.AUTHORIZATION_HEADER, WireMock.equalTo("Bearer expiring-token"))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_TYPE_HEADER, Const.DEFAULT_MANIFEST_MEDIA_TYPE)
+                        .withBody(Manifest.empty().toJson())));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/token?scope=%s&service=localhost".formatted(scope)))
+                .willReturn(WireMock.okJson(JsonUtils.toJson(new BearerTokenProvider.TokenResponse(
+                        "expiring-token", "expiring-token", 1, ZonedDateTime.now())))));
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/token-expiry".formatted(wmRuntimeInfo.getHttpPort()));
+        registry.getManifest(containerRef);
+        Thread.sleep(1000);
+        registry.getManifest(containerRef);
+
+        // The token is refreshed without a second challenge
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/token")));
+        wireMock.verifyThat(
+                3, WireMock.getRequestedFor(WireMock.urlEqualTo("/v2/library/token-expiry/manifests/latest")));
+    }
+
+    @Test
+    void shouldPushStreamInChunks(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+
+        // Two full chunks and a partial one
+        byte[] data = new byte[Const.DEFAULT_CHUNK_SIZE * 2 + 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        String digest = SupportedAlgorithm.SHA256.digest(data);
+
+        wireMock.register(WireMock.post(WireMock.urlEqualTo("/v2/library/chunked-push/blobs/uploads/"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/session?state=0")));
+        wireMock.register(WireMock.patch(WireMock.urlPathEqualTo("/upload/session"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/session?state=1")));
+        wireMock.register(WireMock.put(WireMock.urlPathEqualTo("/upload/session"))
+                .withQueryParam("digest", WireMock.equalTo(digest))
+                .willReturn(WireMock.created()));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/chunked-push".formatted(wmRuntimeInfo.getHttpPort()));
+        Layer layer = registry.pushBlob(containerRef, new ByteArrayInputStream(data));
+        assertEquals(digest, layer.getDigest());
+        assertEquals(data.length, layer.getSize());
+
+        // Digest computed on the fly without checking for the blob
+        wireMock.verifyThat(
+                0, WireMock.headRequestedFor(WireMock.urlPathMatching("/v2/library/chunked-push/blobs/.*")));
+        wireMock.verifyThat(
+                1,
+                WireMock.patchRequestedFor(WireMock.urlEqualTo("/upload/session?state=0"))
+                        .withHeader(
+                                Const.CONTENT_RANGE_HEADER,
+                                WireMock.equalTo("0-%d".formatted(Const.DEFAULT_CHUNK_SIZE - 1))));
+        wireMock.verifyThat(
+                1,
+                WireMock.patchRequestedFor(WireMock.urlEqualTo("/upload/session?state=1"))
+                        .withHeader(
+                                Const.CONTENT_RANGE_HEADER,
+                                WireMock.equalTo("%d-%d"
+                                        .formatted(Const.DEFAULT_CHUNK_SIZE, Const.DEFAULT_CHUNK_SIZE * 2 - 1))));
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlEqualTo("/upload/session?state=1&digest=%s".formatted(digest)))
+                        .withHeader(Const.CONTENT_LENGTH_HEADER, WireMock.equalTo("1024")));
+    }
+
+    @Test
+    void shouldCancelStreamPushOnDigestMismatch(WireMockRuntimeInfo wmRuntimeInfo) {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String digest = SupportedAlgorithm.SHA256.digest("expected".getBytes(StandardCharsets.UTF_8));
+
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/chunked-mismatch/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlEqualTo("/v2/library/chunked-mismatch/blobs/uploads/"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/mismatch")));
+        wireMock.register(WireMock.patch(WireMock.urlEqualTo("/upload/mismatch"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/mismatch")));
+        wireMock.register(
+                WireMock.delete(WireMock.urlEqualTo("/upload/mismatch")).willReturn(WireMock.noContent()));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withChunkSize(Const.DEFAULT_CHUNK_SIZE)
+                .build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/chunked-mismatch@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+
+        // Small blob is verified before any upload
+        OrasException e = assertThrows(
+                OrasException.class,
+                () -> registry.pushBlob(
+                        containerRef, new ByteArrayInputStream("other".getBytes(StandardCharsets.UTF_8))));
+        assertTrue(e.getMessage().startsWith("Digest mismatch"));
+        wireMock.verifyThat(
+                0, WireMock.postRequestedFor(WireMock.urlPathMatching("/v2/library/chunked-mismatch/blobs/uploads/")));
+
+        // Chunked upload session is cancelled and never committed
+        e = assertThrows(
+                OrasException.class,
+                () -> registry.pushBlob(
+                        containerRef, new ByteArrayInputStream(new byte[Const.DEFAULT_CHUNK_SIZE + 1])));
+        assertTrue(e.getMessage().startsWith("Digest mismatch"));
+        wireMock.verifyThat(1, WireMock.patchRequestedFor(WireMock.urlEqualTo("/upload/mismatch")));
+        wireMock.verifyThat(1, WireMock.deleteRequestedFor(WireMock.urlEqualTo("/upload/mismatch")));
+        wireMock.verifyThat(0, WireMock.putRequestedFor(WireMock.urlPathEqualTo("/upload/mismatch")));
+    }
+
+    @Test
+    void shouldResumeChunkUploadAfterFailure(WireMockRuntimeInfo wmRuntimeInfo) {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+        String digest = SupportedAlgorithm.SHA256.digest(data);
+
+        wireMock.register(WireMock.post(WireMock.urlEqualTo("/v2/library/chunked-resume/blobs/uploads/"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/resume?state=0")));
+        wireMock.register(WireMock.patch(WireMock.urlEqualTo("/upload/resume?state=0"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/resume?state=1")));
+
+        // Connection dropped after the registry received 2 bytes of the second chunk
+        wireMock.register(WireMock.patch(WireMock.urlEqualTo("/upload/resume?state=1"))
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/upload/resume?state=1"))
+                .willReturn(WireMock.noContent()
+                        .withHeader(Const.RANGE_HEADER, "0-5")
+                        .withHeader(Const.LOCATION_HEADER, "/upload/resume?state=2")));
+        wireMock.register(WireMock.patch(WireMock.urlEqualTo("/upload/resume?state=2"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/resume?state=3")));
+        wireMock.register(WireMock.put(WireMock.urlEqualTo("/upload/resume?state=3&digest=%s".formatted(digest)))
+                .willReturn(WireMock.created()));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withChunkSize(4).build();
+        assertEquals(4, registry.getChunkSize());
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/chunked-resume".formatted(wmRuntimeInfo.getHttpPort()));
+        Layer layer = registry.pushBlob(containerRef, new ByteArrayInputStream(data));
+        assertEquals(digest, layer.getDigest());
+
+        // Only the missing part of the chunk is sent again
+        wireMock.verifyThat(
+                1,
+                WireMock.patchRequestedFor(WireMock.urlEqualTo("/upload/resume?state=2"))
+                        .withHeader(Const.CONTENT_RANGE_HEADER, WireMock.equalTo("6-7"))
+                        .withRequestBody(WireMock.equalTo("67")));
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlPathEqualTo("/upload/resume"))
+                        .withRequestBody(WireMock.equalTo("89")));
+    }
+
+    @Test
+    void shouldPushLargeFileInChunks(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        Path file = configDir.resolve("large.txt");
+        Files.writeString(file, "a file larger than a chunk");
+        String digest = SupportedAlgorithm.SHA256.digest(file);
+
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/chunked-file/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/chunked-file/blobs/uploads/"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/file?state=0")));
+        wireMock.register(WireMock.patch(WireMock.urlPathEqualTo("/upload/file"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/file?state=1")));
+        wireMock.register(WireMock.put(WireMock.urlEqualTo("/upload/file?state=1&digest=%s".formatted(digest)))
+                .willReturn(WireMock.created()));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withChunkSize(8).build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/chunked-file".formatted(wmRuntimeInfo.getHttpPort()));
+        Layer layer = registry.pushBlob(containerRef, file);
+        assertEquals(digest, layer.getDigest());
+
+        // 26 bytes in 3 chunks of 8 bytes and the remaining 2 bytes with the PUT
+        wireMock.verifyThat(3, WireMock.patchRequestedFor(WireMock.urlPathEqualTo("/upload/file")));
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlPathEqualTo("/upload/file"))
+                        .withRequestBody(WireMock.equalTo("nk")));
+
+        // Invalid chunk size
+        assertThrows(OrasException.class, () -> Registry.Builder.builder().withChunkSize(0));
+    }
+
+    @Test
+    void shouldStreamLargeBlobsInSingleRequestByDefault(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        Path file = configDir.resolve("monolithic.txt");
+        Files.write(file, new byte[Const.DEFAULT_CHUNK_SIZE + 1]);
+        String digest = SupportedAlgorithm.SHA256.digest(file);
+
+        wireMock.register(WireMock.head(WireMock.urlPathMatching("/v2/library/monolithic/blobs/.*"))
+                .willReturn(WireMock.notFound()));
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/v2/library/monolithic/blobs/uploads/"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/monolithic?state=0")));
+        wireMock.register(WireMock.put(WireMock.urlPathEqualTo("/upload/monolithic"))
+                .withQueryParam("digest", WireMock.equalTo(digest))
+                .willReturn(WireMock.created()));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        assertEquals(0, registry.getChunkSize());
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/monolithic".formatted(wmRuntimeInfo.getHttpPort()));
+        assertEquals(digest, registry.pushBlob(containerRef, file).getDigest());
+
+        // Stream of known digest
+        Layer layer = registry.pushBlob(containerRef.withDigest(digest), Files.newInputStream(file));
+        assertEquals(digest, layer.getDigest());
+        assertEquals(Files.size(file), layer.getSize());
+
+        wireMock.verifyThat(0, WireMock.patchRequestedFor(WireMock.urlPathEqualTo("/upload/monolithic")));
+        wireMock.verifyThat(2, WireMock.putRequestedFor(WireMock.urlPathEqualTo("/upload/monolithic")));
+    }
+
+    @Test
+    void shouldUseChunkMinLengthOfRegistry(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+        String digest = SupportedAlgorithm.SHA256.digest(data);
+
+        wireMock.register(WireMock.post(WireMock.urlEqualTo("/v2/library/chunk-min/blobs/uploads/"))
+                .willReturn(WireMock.status(202)
+                        .withHeader(Const.LOCATION_HEADER, "/upload/min?state=0")
+                        .withHeader(Const.OCI_CHUNK_MIN_LENGTH_HEADER, "6")));
+        wireMock.register(WireMock.patch(WireMock.urlPathEqualTo("/upload/min"))
+                .willReturn(WireMock.status(202).withHeader(Const.LOCATION_HEADER, "/upload/min?state=1")));
+        wireMock.register(WireMock.put(WireMock.urlEqualTo("/upload/min?state=1&digest=%s".formatted(digest)))
+                .willReturn(WireMock.created()));
+
+        Registry registry =
+                Registry.Builder.builder().withInsecure(true).withChunkSize(2).build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/chunk-min".formatted(wmRuntimeInfo.getHttpPort()));
+        assertEquals(
+                digest,
+                registry.pushBlob(containerRef, new ByteArrayInputStream(data)).getDigest());
+
+        // One chunk of 6 bytes and the remaining 4 bytes with the PUT
+        wireMock.verifyThat(
+                1,
+                WireMock.patchRequestedFor(WireMock.urlPathEqualTo("/upload/min"))
+                        .withHeader(Const.CONTENT_RANGE_HEADER, WireMock.equalTo("0-5")));
+        wireMock.verifyThat(
+                1,
+                WireMock.putRequestedFor(WireMock.urlPathEqualTo("/upload/min"))
+                        .withRequestBody(WireMock.equalTo("6789")));
+    }
+
+    @Test
+    void shouldResumePartialDownload(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String digest = SupportedAlgorithm.SHA256.digest("0123456789".getBytes(StandardCharsets.UTF_8));
+        String blobUrl = "/v2/library/resume-download/blobs/%s".formatted(digest);
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=4-"))
+                .willReturn(WireMock.status(206)
+                        .withHeader(Const.CONTENT_RANGE_HEADER, "bytes 4-9/10")
+                        .withBody("456789")));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/resume-download@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+
+        // Continue the partial download, not the existing target file
+        Path file = configDir.resolve("resume-download");
+        Path part = configDir.resolve("resume-download.part");
+        Files.writeString(file, "existing");
+        Files.writeString(part, "0123");
+        Descriptor descriptor = registry.fetchBlob(containerRef, file);
+        assertEquals("0123456789", Files.readString(file));
+        assertFalse(Files.exists(part));
+        assertEquals(digest, descriptor.getDigest());
+        assertEquals(10, descriptor.getSize());
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(WireMock.urlEqualTo(blobUrl))
+                        .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=4-")));
+
+        // An existing target file is never taken as a partial download
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.absent())
+                .willReturn(WireMock.ok("0123456789")));
+        Files.writeString(file, "0123");
+        registry.fetchBlob(containerRef, file);
+        assertEquals("0123456789", Files.readString(file));
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(WireMock.urlEqualTo(blobUrl))
+                        .withHeader(Const.RANGE_HEADER, WireMock.absent()));
+    }
+
+    @Test
+    void shouldResumePartialDownloadThroughRedirect(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String digest = SupportedAlgorithm.SHA256.digest("0123456789".getBytes(StandardCharsets.UTF_8));
+        String blobUrl = "/v2/library/resume-redirect/blobs/%s".formatted(digest);
+        String cdnUrl = "/cdn/resume-redirect";
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .willReturn(WireMock.temporaryRedirect(
+                        "http://localhost:%d%s".formatted(wmRuntimeInfo.getHttpPort(), cdnUrl))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(cdnUrl)).willReturn(WireMock.ok("0123456789")));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(cdnUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=4-"))
+                .willReturn(WireMock.status(206)
+                        .withHeader(Const.CONTENT_RANGE_HEADER, "bytes 4-9/10")
+                        .withBody("456789")));
+
+        Registry registry = Registry.Builder.builder()
+                .withAuthProvider(authProvider)
+                .withInsecure(true)
+                .build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/resume-redirect@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+
+        // The range is kept on the redirected request, but not the credentials of the registry
+        Path file = configDir.resolve("resume-redirect");
+        Files.writeString(configDir.resolve("resume-redirect.part"), "0123");
+        registry.fetchBlob(containerRef, file);
+        assertEquals("0123456789", Files.readString(file));
+        wireMock.verifyThat(
+                1,
+                WireMock.getRequestedFor(WireMock.urlEqualTo(cdnUrl))
+                        .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=4-"))
+                        .withoutHeader(Const.AUTHORIZATION_HEADER));
+        wireMock.verifyThat(
+                0, WireMock.getRequestedFor(WireMock.urlEqualTo(cdnUrl)).withoutHeader(Const.RANGE_HEADER));
+    }
+
+    @Test
+    void shouldDownloadFullBlobWhenRangeIgnoredOrInvalid(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String digest = SupportedAlgorithm.SHA256.digest("0123456789".getBytes(StandardCharsets.UTF_8));
+        String blobUrl = "/v2/library/ignore-range/blobs/%s".formatted(digest);
+
+        // Server ignores ranges
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl)).willReturn(WireMock.ok("0123456789")));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/ignore-range@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+
+        // Partial download is overwritten
+        Path file = configDir.resolve("ignore-range");
+        Path part = configDir.resolve("ignore-range.part");
+        Files.writeString(part, "0123");
+        registry.fetchBlob(containerRef, file);
+        assertEquals("0123456789", Files.readString(file));
+
+        // Stale file not part of this blob is downloaded again from the start
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=4-"))
+                .willReturn(WireMock.status(206)
+                        .withHeader(Const.CONTENT_RANGE_HEADER, "bytes 4-9/10")
+                        .withBody("456789")));
+        Files.writeString(part, "abcd");
+        registry.fetchBlob(containerRef, file);
+        assertEquals("0123456789", Files.readString(file));
+
+        // Wrong content is never left behind
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl)).willReturn(WireMock.ok("corrupted")));
+        Files.delete(file);
+        OrasException e = assertThrows(OrasException.class, () -> registry.fetchBlob(containerRef, file));
+        assertTrue(e.getMessage().startsWith("Digest mismatch"));
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(part));
+    }
+
+    @Test
+    void shouldRetryInterruptedDownload(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        String digest = SupportedAlgorithm.SHA256.digest("0123456789".getBytes(StandardCharsets.UTF_8));
+        String blobUrl = "/v2/library/interrupted-download/blobs/%s".formatted(digest);
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .inScenario("interrupted")
+                .willSetStateTo("reconnected")
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .inScenario("interrupted")
+                .whenScenarioStateIs("reconnected")
+                .willReturn(WireMock.ok("0123456789")));
+
+        Registry registry = Registry.Builder.builder().withInsecure(true).build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/interrupted-download@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+        Path file = configDir.resolve("interrupted-download");
+        registry.fetchBlob(containerRef, file);
+        assertEquals("0123456789", Files.readString(file));
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlEqualTo(blobUrl)));
+    }
+
+    @Test
+    void shouldDownloadLargeBlobInSegments(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        int size = (int) Const.MIN_SEGMENT_SIZE * 2 + 3;
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        String digest = SupportedAlgorithm.SHA256.digest(data);
+        String blobUrl = "/v2/library/segmented/blobs/%s".formatted(digest);
+        int half = size / 2;
+
+        wireMock.register(WireMock.head(WireMock.urlEqualTo(blobUrl))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_LENGTH_HEADER, String.valueOf(size))
+                        .withHeader(Const.ACCEPT_RANGES_HEADER, "bytes")));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=0-%d".formatted(half - 1)))
+                .willReturn(WireMock.status(206)
+                        .withHeader(Const.CONTENT_RANGE_HEADER, "bytes 0-%d/%d".formatted(half - 1, size))
+                        .withBody(Arrays.copyOfRange(data, 0, half))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=%d-%d".formatted(half, size - 1)))
+                .willReturn(WireMock.status(206)
+                        .withHeader(Const.CONTENT_RANGE_HEADER, "bytes %d-%d/%d".formatted(half, size - 1, size))
+                        .withBody(Arrays.copyOfRange(data, half, size))));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withDownloadSegments(4)
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/segmented@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+        Path file = configDir.resolve("segmented");
+        Descriptor descriptor = registry.fetchBlob(containerRef, file);
+        assertEquals(size, descriptor.getSize());
+        assertEquals(digest, SupportedAlgorithm.SHA256.digest(file));
+
+        // Two segments only since the blob is too small for four
+        wireMock.verifyThat(
+                2,
+                WireMock.getRequestedFor(WireMock.urlEqualTo(blobUrl))
+                        .withHeader(Const.RANGE_HEADER, WireMock.matching("bytes=\\d+-\\d+")));
+        wireMock.verifyThat(
+                0, WireMock.getRequestedFor(WireMock.urlEqualTo(blobUrl)).withoutHeader(Const.RANGE_HEADER));
+    }
+
+    @Test
+    void shouldDownloadSegmentsThroughRedirect(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        int size = (int) Const.MIN_SEGMENT_SIZE * 2;
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        String digest = SupportedAlgorithm.SHA256.digest(data);
+        String blobUrl = "/v2/library/segmented-redirect/blobs/%s".formatted(digest);
+        String cdnUrl = "/cdn/segmented-redirect";
+        int half = size / 2;
+
+        wireMock.register(WireMock.head(WireMock.urlEqualTo(blobUrl))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_LENGTH_HEADER, String.valueOf(size))
+                        .withHeader(Const.ACCEPT_RANGES_HEADER, "bytes")));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .willReturn(WireMock.temporaryRedirect(
+                        "http://localhost:%d%s".formatted(wmRuntimeInfo.getHttpPort(), cdnUrl))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(cdnUrl))
+                .willReturn(WireMock.ok().withBody(data)));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(cdnUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=0-%d".formatted(half - 1)))
+                .willReturn(WireMock.status(206)
+                        .withHeader(Const.CONTENT_RANGE_HEADER, "bytes 0-%d/%d".formatted(half - 1, size))
+                        .withBody(Arrays.copyOfRange(data, 0, half))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(cdnUrl))
+                .withHeader(Const.RANGE_HEADER, WireMock.equalTo("bytes=%d-%d".formatted(half, size - 1)))
+                .willReturn(WireMock.status(206)
+                        .withHeader(Const.CONTENT_RANGE_HEADER, "bytes %d-%d/%d".formatted(half, size - 1, size))
+                        .withBody(Arrays.copyOfRange(data, half, size))));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withDownloadSegments(2)
+                .build();
+        ContainerRef containerRef = ContainerRef.parse(
+                "localhost:%d/library/segmented-redirect@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+        Path file = configDir.resolve("segmented-redirect");
+        registry.fetchBlob(containerRef, file);
+        assertEquals(digest, SupportedAlgorithm.SHA256.digest(file));
+
+        // Each segment keeps its range on the redirected request, no fallback to a single download
+        wireMock.verifyThat(
+                2,
+                WireMock.getRequestedFor(WireMock.urlEqualTo(cdnUrl))
+                        .withHeader(Const.RANGE_HEADER, WireMock.matching("bytes=\\d+-\\d+")));
+        wireMock.verifyThat(
+                0, WireMock.getRequestedFor(WireMock.urlEqualTo(cdnUrl)).withoutHeader(Const.RANGE_HEADER));
+    }
+
+    @Test
+    void shouldFallbackToSingleDownloadWithoutRangeSupport(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        byte[] data = new byte[(int) Const.MIN_SEGMENT_SIZE * 2];
+        String digest = SupportedAlgorithm.SHA256.digest(data);
+        String blobUrl = "/v2/library/no-range/blobs/%s".formatted(digest);
+
+        // Range requests answered with the full content
+        wireMock.register(WireMock.head(WireMock.urlEqualTo(blobUrl))
+                .willReturn(WireMock.ok()
+                        .withHeader(Const.CONTENT_LENGTH_HEADER, String.valueOf(data.length))
+                        .withHeader(Const.ACCEPT_RANGES_HEADER, "bytes")));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo(blobUrl))
+                .willReturn(WireMock.ok().withBody(data)));
+
+        Registry registry = Registry.Builder.builder()
+                .withInsecure(true)
+                .withDownloadSegments(2)
+                .build();
+        ContainerRef containerRef =
+                ContainerRef.parse("localhost:%d/library/no-range@%s".formatted(wmRuntimeInfo.getHttpPort(), digest));
+        Path file = configDir.resolve("no-range");
+        registry.fetchBlob(containerRef, file);
+        assertEquals(digest, SupportedAlgorithm.SHA256.digest(file));
+        wireMock.verifyThat(
+                1, WireMock.getRequestedFor(WireMock.urlEqualTo(blobUrl)).withoutHeader(Const.RANGE_HEADER));
+    }
 }
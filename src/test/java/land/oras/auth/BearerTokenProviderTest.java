@@ -125,6 +125,44 @@ public class BearerTokenProviderTest {
         assertEquals("Bearer fake-token", provider.getAuthHeader(containerRef));
     }
 
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void shouldEvictExpiredTokens(WireMockRuntimeInfo wmRuntimeInfo) throws InterruptedException {
+
+        // A short-lived token for the first repository, a long-lived one for the second
+        WireMock wireMock = wmRuntimeInfo.getWireMock();
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/token?scope=repository:library/test:pull&service=evict"))
+                .willReturn(WireMock.okJson(JsonUtils.toJson(
+                        new BearerTokenProvider.TokenResponse("short-token", "short-token", 1, ZonedDateTime.now())))));
+        wireMock.register(WireMock.get(WireMock.urlEqualTo("/token?scope=repository:library/other:pull&service=evict"))
+                .willReturn(WireMock.okJson(JsonUtils.toJson(
+                        new BearerTokenProvider.TokenResponse("long-token", "long-token", 300, ZonedDateTime.now())))));
+        OrasHttpClient.ResponseWrapper shortResponse = Mockito.mock(OrasHttpClient.ResponseWrapper.class);
+        doReturn(Map.of(
+                        Const.WWW_AUTHENTICATE_HEADER.toLowerCase(),
+                        "Bearer realm=\"%s/token\",service=\"evict\",scope=\"repository:library/test:pull\""
+                                .formatted(wmRuntimeInfo.getHttpBaseUrl())))
+                .when(shortResponse)
+                .headers();
+        OrasHttpClient.ResponseWrapper longResponse = Mockito.mock(OrasHttpClient.ResponseWrapper.class);
+        doReturn(Map.of(
+                        Const.WWW_AUTHENTICATE_HEADER.toLowerCase(),
+                        "Bearer realm=\"%s/token\",service=\"evict\",scope=\"repository:library/other:pull\""
+                                .formatted(wmRuntimeInfo.getHttpBaseUrl())))
+                .when(longResponse)
+                .headers();
+
+        BearerTokenProvider provider = new BearerTokenProvider(new NoAuthProvider());
+        OrasHttpClient client = OrasHttpClient.Builder.builder().build();
+        provider.refreshToken(containerRef, client, shortResponse);
+        assertEquals("Bearer short-token", provider.getAuthHeader(containerRef));
+
+        // The expired token is evicted when the next token is stored, and not refreshed anymore
+        Thread.sleep(1100);
+        provider.refreshToken(ContainerRef.parse("localhost:5000/library/other:latest"), client, longResponse);
+        assertEquals("Bearer long-token", provider.getAuthHeader(containerRef));
+    }
+
     @Test
     void testNoRefreshedToken() {
         BearerTokenProvider provider = new BearerTokenProvider(new UsernamePasswordProvider("user", "password"));
@@ -21,6 +21,7 @@
 package land.oras.auth;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import land.oras.ContainerRef;
 import org.junit.jupiter.api.Test;
@@ -44,6 +45,11 @@ public class UsernamePasswordProviderTest {
                 authProvider.getAuthHeader(ContainerRef.fromUrl("docker.io")),
                 "Auth header should be correct");
 
+        // Encoded once
+        assertSame(
+                authProvider.getAuthHeader(ContainerRef.fromUrl("localhost:5000")),
+                authProvider.getAuthHeader(ContainerRef.fromUrl("localhost:5000")));
+
         // Getters
         assertEquals("user", authProvider.getUsername(), "Username should be correct");
         assertEquals("pass", authProvider.getPassword(), "Password should be correct");
@@ -20,6 +20,8 @@
 
 package land.oras.utils;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Files;
@@ -27,6 +29,7 @@ import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.Set;
 import land.oras.LocalPath;
+import land.oras.exception.OrasException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.CleanupMode;
@@ -139,6 +142,25 @@ public class ArchiveUtilsTest {
         assertTrue(Files.isSymbolicLink(targetGzDir.resolve("dir1").resolve("file3")), "file3 should be symlink");
     }
 
+    @Test
+    void shouldVerifyDigestWhileUncompressing() throws Exception {
+        LocalPath archive = ArchiveUtils.tar(LocalPath.of(archiveDir));
+        String digest = SupportedAlgorithm.SHA256.digest(archive.getPath());
+        Path compressedArchive = ArchiveUtils.compress(archive, Const.DEFAULT_BLOB_DIR_MEDIA_TYPE)
+                .getPath();
+
+        Path uncompressedArchive = ArchiveUtils.uncompress(
+                        Files.newInputStream(compressedArchive), Const.DEFAULT_BLOB_DIR_MEDIA_TYPE, digest)
+                .getPath();
+        assertEquals(digest, SupportedAlgorithm.SHA256.digest(uncompressedArchive));
+
+        String otherDigest = SupportedAlgorithm.SHA256.digest("other".getBytes());
+        assertThrows(
+                OrasException.class,
+                () -> ArchiveUtils.uncompress(
+                        Files.newInputStream(compressedArchive), Const.DEFAULT_BLOB_DIR_MEDIA_TYPE, otherDigest));
+    }
+
     @Test
     void shouldCreateTarZstdAndExtractIt() throws Exception {
         LocalPath directory = LocalPath.of(archiveDir, Const.BLOB_DIR_ZSTD_MEDIA_TYPE);
@@ -0,0 +1,118 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import land.oras.exception.OrasException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class CircuitBreakerTest {
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        CircuitBreaker breaker = CircuitBreaker.Builder.builder()
+                .withFailureThreshold(3)
+                .withOpenDuration(Duration.ofMinutes(1))
+                .build();
+
+        // A success resets the failures
+        fail(breaker, "localhost");
+        fail(breaker, "localhost");
+        breaker.acquire("localhost");
+        breaker.onSuccess("localhost");
+        fail(breaker, "localhost");
+        fail(breaker, "localhost");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("localhost"));
+
+        fail(breaker, "localhost");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState("localhost"));
+        assertEquals(1, breaker.getOpenedCount());
+        assertThrows(OrasException.class, () -> breaker.acquire("localhost"));
+        assertEquals(1, breaker.getRejectedCount());
+
+        // Hosts are independent
+        assertDoesNotThrow(() -> breaker.acquire("other"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("other"));
+    }
+
+    @Test
+    void shouldAllowSingleTrialWhenHalfOpen() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.Builder.builder()
+                .withFailureThreshold(1)
+                .withOpenDuration(Duration.ofMillis(100))
+                .build();
+        fail(breaker, "localhost");
+        assertThrows(OrasException.class, () -> breaker.acquire("localhost"));
+        Thread.sleep(150);
+
+        // Failed trial opens the breaker again
+        breaker.acquire("localhost");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("localhost"));
+        assertThrows(OrasException.class, () -> breaker.acquire("localhost"));
+        breaker.onFailure("localhost");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState("localhost"));
+        Thread.sleep(150);
+
+        // Cancelled trial allows another trial
+        breaker.acquire("localhost");
+        breaker.onCancel("localhost");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("localhost"));
+
+        // Successful trial closes the breaker
+        breaker.acquire("localhost");
+        breaker.onSuccess("localhost");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("localhost"));
+        assertEquals(2, breaker.getOpenedCount());
+        assertDoesNotThrow(() -> breaker.acquire("localhost"));
+    }
+
+    @Test
+    void shouldCountOnlyHostFailures() {
+        CircuitBreaker breaker = CircuitBreaker.defaults();
+        assertTrue(breaker.isEnabled());
+        assertTrue(breaker.isFailure(503));
+        assertFalse(breaker.isFailure(500));
+        assertFalse(breaker.isFailure(429));
+        assertFalse(breaker.isFailure(404));
+        assertFalse(CircuitBreaker.none().isEnabled());
+    }
+
+    @Test
+    void shouldRejectInvalidValues() {
+        assertThrows(OrasException.class, () -> CircuitBreaker.Builder.builder().withFailureThreshold(-1));
+        assertThrows(
+                OrasException.class, () -> CircuitBreaker.Builder.builder().withOpenDuration(Duration.ofMillis(-1)));
+    }
+
+    private static void fail(CircuitBreaker breaker, String host) {
+        breaker.acquire(host);
+        breaker.onFailure(host);
+    }
+}
@@ -0,0 +1,186 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import land.oras.exception.OrasException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class DigestCacheTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void shouldSkipHashingUnchangedFiles() throws IOException {
+        DigestCache cache = DigestCache.Builder.builder().build();
+        Path file = write("unchanged.txt", "hello", Instant.now().minusSeconds(60));
+        AtomicInteger computed = new AtomicInteger();
+
+        assertEquals(SupportedAlgorithm.SHA256.digest(file), digest(cache, file, computed));
+        assertEquals(SupportedAlgorithm.SHA256.digest(file), digest(cache, file, computed));
+        assertEquals(1, computed.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Other algorithms are cached separately
+        cache.digest("sha512", file, () -> SupportedAlgorithm.SHA512.digest(file));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void shouldDetectChanges() throws IOException {
+        DigestCache cache = DigestCache.Builder.builder().build();
+        Instant modified = Instant.now().minusSeconds(60);
+        Path file = write("changed.txt", "hello", modified);
+        AtomicInteger computed = new AtomicInteger();
+        digest(cache, file, computed);
+
+        // Same size and modification time, different file
+        Files.delete(file);
+        write("changed.txt", "world", modified);
+        assertEquals(SupportedAlgorithm.SHA256.digest(file), digest(cache, file, computed));
+
+        // Different modification time
+        Files.setLastModifiedTime(file, FileTime.from(modified.plusSeconds(1)));
+        digest(cache, file, computed);
+
+        // Different size
+        Files.writeString(file, "!", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(file, FileTime.from(modified.plusSeconds(1)));
+        assertEquals(SupportedAlgorithm.SHA256.digest(file), digest(cache, file, computed));
+        assertEquals(4, computed.get());
+    }
+
+    @Test
+    void shouldNotCacheRecentlyModifiedFiles() throws IOException {
+        DigestCache cache = DigestCache.Builder.builder().build();
+        Path file = write("recent.txt", "hello", Instant.now());
+        AtomicInteger computed = new AtomicInteger();
+        digest(cache, file, computed);
+        digest(cache, file, computed);
+        assertEquals(2, computed.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed() throws IOException {
+        DigestCache cache = DigestCache.Builder.builder().withMaxEntries(2).build();
+        Instant modified = Instant.now().minusSeconds(60);
+        Path file1 = write("lru1.txt", "1", modified);
+        Path file2 = write("lru2.txt", "2", modified);
+        Path file3 = write("lru3.txt", "3", modified);
+        AtomicInteger computed = new AtomicInteger();
+        digest(cache, file1, computed);
+        digest(cache, file2, computed);
+        digest(cache, file1, computed);
+        digest(cache, file3, computed);
+        assertEquals(2, cache.size());
+        assertEquals(3, computed.get());
+
+        // file2 was evicted
+        digest(cache, file1, computed);
+        digest(cache, file2, computed);
+        assertEquals(4, computed.get());
+    }
+
+    @Test
+    void shouldPersistEntries() throws IOException {
+        Path store = dir.resolve("cache").resolve("digests.jsonl");
+        Path file = write("persisted.txt", "hello", Instant.now().minusSeconds(60));
+        DigestCache cache = DigestCache.Builder.builder().withStore(store).build();
+        AtomicInteger computed = new AtomicInteger();
+        digest(cache, file, computed);
+
+        // Invalid lines are ignored
+        Files.writeString(store, "not json\n", StandardOpenOption.APPEND);
+
+        DigestCache reloaded = DigestCache.Builder.builder().withStore(store).build();
+        assertEquals(1, reloaded.size());
+        assertEquals(SupportedAlgorithm.SHA256.digest(file), digest(reloaded, file, computed));
+        assertEquals(1, computed.get());
+        assertEquals(1, Files.readAllLines(store).size());
+
+        reloaded.clear();
+        assertEquals(0, DigestCache.Builder.builder().withStore(store).build().size());
+    }
+
+    @Test
+    void shouldBeUsedWhenEnabled() throws IOException {
+        DigestCache cache = DigestCache.Builder.builder().build();
+        Path file = write("enabled.txt", "hello", Instant.now().minusSeconds(60));
+        String digest = SupportedAlgorithm.SHA256.digest(file);
+        try {
+            DigestCache.enable(cache);
+            assertSame(cache, DigestCache.getEnabled());
+            assertEquals(digest, SupportedAlgorithm.SHA256.digest(file));
+            assertEquals(digest, SupportedAlgorithm.SHA256.digest(file));
+            assertEquals(1, cache.getHitCount());
+
+            // Content digests used to verify downloads never come from the cache
+            FileTime modified = Files.getLastModifiedTime(file);
+            Files.writeString(file, "hallo");
+            Files.setLastModifiedTime(file, modified);
+            assertEquals(digest, SupportedAlgorithm.SHA256.digest(file));
+            assertEquals(
+                    SupportedAlgorithm.SHA256.digest("hallo".getBytes()),
+                    SupportedAlgorithm.SHA256.digestContent(file));
+            assertEquals(2, cache.getHitCount());
+        } finally {
+            DigestCache.disable();
+        }
+        assertNull(DigestCache.getEnabled());
+    }
+
+    @Test
+    void shouldRejectInvalidValues() {
+        assertThrows(OrasException.class, () -> DigestCache.Builder.builder().withMaxEntries(0));
+    }
+
+    private Path write(String name, String content, Instant modified) throws IOException {
+        Path file = dir.resolve(name);
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        return file;
+    }
+
+    private static String digest(DigestCache cache, Path file, AtomicInteger computed) {
+        return cache.digest("sha256", file, () -> {
+            computed.incrementAndGet();
+            return SupportedAlgorithm.SHA256.digest(file);
+        });
+    }
+}
@@ -21,6 +21,8 @@
 package land.oras.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
@@ -28,7 +30,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.Security;
 import land.oras.exception.OrasException;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.parallel.Execution;
@@ -52,6 +53,30 @@ public class DigestUtilsTest {
         assertThrows(OrasException.class, () -> DigestUtils.digest("unknown", "test", Files.newInputStream(file)));
     }
 
+    @Test
+    void shouldSelectProviderPerAlgorithm() {
+        assertEquals(
+                "SUN", DigestUtils.newMessageDigest("SHA-256").getProvider().getName());
+        assertEquals(
+                "SUN", DigestUtils.newMessageDigest("SHA-512").getProvider().getName());
+        assertEquals(
+                "BC", DigestUtils.newMessageDigest("BLAKE3-256").getProvider().getName());
+        assertNull(Security.getProvider("BC"), "BouncyCastle must not be registered globally");
+    }
+
+    @Test
+    void shouldReuseDigestsSafely() {
+        assertNotSame(DigestUtils.newMessageDigest("SHA-256"), DigestUtils.newMessageDigest("SHA-256"));
+
+        // A failure doesn't affect the next digests
+        assertThrows(OrasException.class, () -> DigestUtils.digest("SHA-256", "sha256", blobDir.resolve("missing")));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(
+                    "sha256:2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824",
+                    DigestUtils.digest("SHA-256", "sha256", "hello".getBytes()));
+        }
+    }
+
     @Test
     void testSha256ByteArray() {
         assertEquals(
@@ -126,7 +151,6 @@ public class DigestUtilsTest {
 
     @Test
     void testBlake3ByteArray() {
-        Security.addProvider(new BouncyCastleProvider());
         assertEquals(
                 "blake3:ea8f163db38682925e4491c5e58d4bb3506ef8c14eb78a86e908c5624a67200f",
                 DigestUtils.digest("BLAKE3-256", "blake3", "hello".getBytes()));
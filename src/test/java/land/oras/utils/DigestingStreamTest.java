@@ -0,0 +1,84 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+package land.oras.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import land.oras.exception.OrasException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class DigestingStreamTest {
+
+    private static final byte[] CONTENT = "hello world".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void shouldDigestWhileReading() throws IOException {
+        try (DigestingInputStream is =
+                new DigestingInputStream(new ByteArrayInputStream(CONTENT), SupportedAlgorithm.SHA512)) {
+            assertEquals('h', is.read());
+            assertEquals(5, is.skip(5));
+            assertArrayEquals("world".getBytes(StandardCharsets.UTF_8), is.readAllBytes());
+            assertEquals(CONTENT.length, is.getSize());
+            assertEquals(SupportedAlgorithm.SHA512.digest(CONTENT), is.getDigest());
+            assertDoesNotThrow(() -> is.verify(SupportedAlgorithm.SHA512.digest(CONTENT)));
+            assertThrows(OrasException.class, () -> is.verify(SupportedAlgorithm.SHA512.digest(new byte[0])));
+        }
+    }
+
+    @Test
+    void shouldVerifyAtEndOfStream() throws IOException {
+        try (DigestingInputStream is = new DigestingInputStream(
+                new ByteArrayInputStream(CONTENT), SupportedAlgorithm.SHA256.digest(CONTENT))) {
+            assertArrayEquals(CONTENT, is.readAllBytes());
+            assertEquals(-1, is.read());
+        }
+        try (DigestingInputStream is = new DigestingInputStream(
+                new ByteArrayInputStream(CONTENT), SupportedAlgorithm.SHA256.digest(new byte[0]))) {
+            assertEquals(CONTENT.length, is.read(new byte[CONTENT.length]));
+            OrasException e = assertThrows(OrasException.class, is::read);
+            assertTrue(e.getMessage().startsWith("Digest mismatch"));
+        }
+    }
+
+    @Test
+    void shouldDigestWhileWriting() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DigestingOutputStream os = new DigestingOutputStream(bos, SupportedAlgorithm.SHA256)) {
+            os.write(CONTENT[0]);
+            os.write(CONTENT, 1, CONTENT.length - 1);
+            assertEquals(CONTENT.length, os.getSize());
+            assertEquals(SupportedAlgorithm.SHA256.digest(CONTENT), os.getDigest());
+            assertDoesNotThrow(() -> os.verify(SupportedAlgorithm.SHA256.digest(CONTENT)));
+            assertThrows(OrasException.class, () -> os.verify(SupportedAlgorithm.SHA256.digest(new byte[0])));
+        }
+        assertArrayEquals(CONTENT, bos.toByteArray());
+    }
+}
@@ -0,0 +1,186 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import land.oras.exception.OrasException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class RateLimiterTest {
+
+    @Test
+    void shouldNotLimitByDefault() {
+        RateLimiter limiter = RateLimiter.defaults();
+        assertTrue(limiter.isEnabled());
+        assertTrue(Double.isInfinite(limiter.getRate("localhost")));
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("localhost");
+            limiter.release("localhost");
+            limiter.update("localhost", 200, Map.of());
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+        assertTrue(Double.isInfinite(limiter.getRate("localhost")));
+        assertFalse(RateLimiter.none().isEnabled());
+    }
+
+    @Test
+    void shouldLimitRateAfterBurst() {
+        RateLimiter limiter = RateLimiter.Builder.builder()
+                .withMaxRate(10)
+                .withAdaptive(false)
+                .build();
+        long start = System.nanoTime();
+
+        // A burst of 10 requests then 5 requests at 10 per second
+        for (int i = 0; i < 15; i++) {
+            limiter.acquire("localhost");
+            limiter.release("localhost");
+        }
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(elapsed >= 400, "Elapsed " + elapsed);
+
+        // Hosts are limited independently
+        start = System.nanoTime();
+        limiter.acquire("other");
+        limiter.release("other");
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 100);
+    }
+
+    @Test
+    void shouldCapRequestsInFlight() throws Exception {
+        RateLimiter limiter = RateLimiter.Builder.builder().withMaxInFlight(2).build();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 16; i++) {
+                executor.execute(() -> {
+                    limiter.acquire("localhost");
+                    try {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.decrementAndGet();
+                        limiter.release("localhost");
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void shouldAdaptRateToThrottling() {
+        RateLimiter limiter = RateLimiter.Builder.builder().withMaxRate(20).build();
+        limiter.acquire("localhost");
+        limiter.release("localhost");
+
+        // Halved on 429
+        limiter.update("localhost", 429, Map.of());
+        assertEquals(10, limiter.getRate("localhost"));
+
+        // Slowly increased on success
+        limiter.update("localhost", 200, Map.of());
+        assertEquals(10.1, limiter.getRate("localhost"), 0.001);
+
+        // The remaining quota doesn't set the rate
+        limiter.update("localhost", 200, Map.of("ratelimit-remaining", "76;w=21600"));
+        limiter.update("localhost", 200, Map.of("ratelimit-remaining", "10", "ratelimit-reset", "5"));
+        assertTrue(limiter.getRate("localhost") > 10.1);
+
+        // Never below the minimum rate
+        for (int i = 0; i < 10; i++) {
+            limiter.update("localhost", 429, Map.of());
+        }
+        assertEquals(0.1, limiter.getRate("localhost"), 0.001);
+
+        // Not adaptive
+        RateLimiter fixed = RateLimiter.Builder.builder()
+                .withMaxRate(20)
+                .withAdaptive(false)
+                .build();
+        fixed.acquire("localhost");
+        fixed.release("localhost");
+        fixed.update("localhost", 429, Map.of());
+        assertEquals(20, fixed.getRate("localhost"));
+    }
+
+    @Test
+    void shouldPauseWhenQuotaIsExhausted() {
+        RateLimiter limiter = RateLimiter.defaults();
+        limiter.acquire("localhost");
+        limiter.release("localhost");
+        limiter.update("localhost", 200, Map.of("ratelimit-remaining", "0;w=21600", "ratelimit-reset", "1"));
+        long start = System.nanoTime();
+        limiter.acquire("localhost");
+        limiter.release("localhost");
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(elapsed >= 900, "Elapsed " + elapsed);
+        assertTrue(Double.isInfinite(limiter.getRate("localhost")));
+    }
+
+    @Test
+    void shouldOnlyTryAcquireWithoutWaiting() {
+        RateLimiter limiter = RateLimiter.Builder.builder()
+                .withMaxRate(1)
+                .withMaxInFlight(1)
+                .withAdaptive(false)
+                .build();
+
+        // Slot taken
+        assertTrue(limiter.tryAcquire("localhost"));
+        assertFalse(limiter.tryAcquire("localhost"));
+        limiter.release("localhost");
+
+        // Token taken, the failed attempt doesn't take the slot
+        assertFalse(limiter.tryAcquire("localhost"));
+        assertTrue(limiter.tryAcquire("other"));
+        long start = System.nanoTime();
+        limiter.acquire("localhost");
+        limiter.release("localhost");
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 900);
+    }
+
+    @Test
+    void shouldRejectInvalidValues() {
+        assertThrows(OrasException.class, () -> RateLimiter.Builder.builder().withMaxRate(0));
+        assertThrows(OrasException.class, () -> RateLimiter.Builder.builder().withMaxInFlight(-1));
+    }
+}
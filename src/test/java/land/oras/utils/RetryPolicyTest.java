@@ -0,0 +1,95 @@
+/*-
+ * =LICENSE=
+ * ORAS Java SDK
+ * ===
+ * Copyright (C) 2024 - 2025 ORAS
+ * ===
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =LICENSEEND=
+ */
+
+package land.oras.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import land.oras.exception.OrasException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class RetryPolicyTest {
+
+    @Test
+    void shouldRetryTransientStatusCodes() {
+        RetryPolicy policy = RetryPolicy.defaults();
+        assertEquals(3, policy.getMaxRetries());
+        assertTrue(policy.isRetryable(-1));
+        assertTrue(policy.isRetryable(429));
+        assertTrue(policy.isRetryable(503));
+        assertFalse(policy.isRetryable(400));
+        assertFalse(policy.isRetryable(401));
+        assertFalse(policy.isRetryable(404));
+        assertEquals(0, RetryPolicy.none().getMaxRetries());
+    }
+
+    @Test
+    void shouldComputeBackoffWithJitter() {
+        RetryPolicy policy = RetryPolicy.Builder.builder()
+                .withInitialDelay(Duration.ofMillis(100))
+                .withMaxDelay(Duration.ofMillis(1000))
+                .build();
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getDelay(0, null).toMillis();
+            assertTrue(first >= 50 && first <= 100, "Unexpected delay " + first);
+            long third = policy.getDelay(2, null).toMillis();
+            assertTrue(third >= 200 && third <= 400, "Unexpected delay " + third);
+            long capped = policy.getDelay(40, null).toMillis();
+            assertTrue(capped >= 500 && capped <= 1000, "Unexpected delay " + capped);
+        }
+    }
+
+    @Test
+    void shouldHonorRetryAfter() {
+        RetryPolicy policy = RetryPolicy.Builder.builder()
+                .withInitialDelay(Duration.ofMillis(10))
+                .withMaxDelay(Duration.ofSeconds(5))
+                .build();
+        assertEquals(Duration.ofSeconds(2), policy.getDelay(0, "2"));
+        assertTrue(policy.getDelay(0, "invalid").toMillis() <= 10);
+
+        String date = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(3).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        Duration delay = policy.getDelay(0, date);
+        assertNotNull(delay);
+        assertTrue(delay.toMillis() > 1000 && delay.toMillis() <= 3000, "Unexpected delay " + delay);
+
+        // Longer than the maximum delay
+        assertNull(policy.getDelay(0, "60"));
+    }
+
+    @Test
+    void shouldRejectInvalidValues() {
+        assertThrows(OrasException.class, () -> RetryPolicy.Builder.builder().withMaxRetries(-1));
+        assertThrows(OrasException.class, () -> RetryPolicy.Builder.builder().withInitialDelay(Duration.ofMillis(-1)));
+        assertThrows(OrasException.class, () -> RetryPolicy.Builder.builder().withMaxDelay(Duration.ofMillis(-1)));
+    }
+}
@@ -28,6 +28,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import land.oras.exception.OrasException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -61,6 +62,21 @@ public class SupportedAlgorithmTest {
                 SupportedAlgorithm.SHA256.digest(Files.newInputStream(file)));
     }
 
+    @Test
+    void shouldDigestIncrementally() {
+        MessageDigest messageDigest = SupportedAlgorithm.SHA256.newMessageDigest();
+        messageDigest.update("hel".getBytes());
+        messageDigest.update("lo".getBytes());
+        assertEquals(
+                "sha256:2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824",
+                SupportedAlgorithm.SHA256.digest(messageDigest));
+        for (SupportedAlgorithm algorithm : SupportedAlgorithm.values()) {
+            MessageDigest digest = algorithm.newMessageDigest();
+            digest.update("hello".getBytes());
+            assertEquals(algorithm.digest("hello".getBytes()), algorithm.digest(digest));
+        }
+    }
+
     @Test
     void shouldPreventDuplicatePrefix() {
         assertThrows(